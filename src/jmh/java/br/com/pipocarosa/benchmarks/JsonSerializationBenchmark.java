@@ -0,0 +1,84 @@
+package br.com.pipocarosa.benchmarks;
+
+import br.com.pipocarosa.authentication.AuthenticationResponse;
+import br.com.pipocarosa.config.JsonConfiguration;
+import br.com.pipocarosa.dtos.UserRecordDto;
+import br.com.pipocarosa.exceptions.ApiErrorWriter;
+import br.com.pipocarosa.models.UserModel;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of the request and response bodies on the register and login paths,
+ * with an ObjectMapper configured the way Spring Boot configures the application's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private UserRecordDto userRecord;
+    private String userRecordJson;
+    private AuthenticationResponse authenticationResponse;
+    private ApiErrorWriter apiErrorWriter;
+    private String apiErrorPath;
+
+    @Setup
+    public void setUp() throws Exception {
+        JsonConfiguration jsonConfiguration = new JsonConfiguration();
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .modulesToInstall(jsonConfiguration.blackbirdModule(), jsonConfiguration.responseSerializersModule())
+                .build();
+
+        userRecord = new UserRecordDto("Felipe Enzo", "felipe@gmail.com", "17/08/2001", "123456");
+        userRecordJson = objectMapper.writeValueAsString(userRecord);
+
+        UserModel user = new UserModel(1L, "Felipe Enzo", "felipe@gmail.com", "17/08/2001");
+        authenticationResponse = new AuthenticationResponse(
+                JwtServiceBenchmark.newJwtService().generateToken(user, Map.of()), user.getUuid()
+        );
+
+        apiErrorWriter = new ApiErrorWriter(HttpStatus.NOT_FOUND, "User not found");
+        apiErrorPath = "/user/" + UUID.randomUUID();
+    }
+
+    @Benchmark
+    public String writeUserRecord() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(userRecord);
+    }
+
+    @Benchmark
+    public UserRecordDto readUserRecord() throws JsonProcessingException {
+        return objectMapper.readValue(userRecordJson, UserRecordDto.class);
+    }
+
+    @Benchmark
+    public String writeAuthenticationResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(authenticationResponse);
+    }
+
+    @Benchmark
+    public byte[] writeApiError() {
+        return apiErrorWriter.write(apiErrorPath);
+    }
+}
@@ -0,0 +1,55 @@
+package br.com.pipocarosa.benchmarks;
+
+import br.com.pipocarosa.config.JwtAuthenticationFilter;
+import br.com.pipocarosa.models.UserModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authorization header parsing done by {@link JwtAuthenticationFilter} on every request,
+ * for a bearer token, another scheme and a request without the header.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private String bearerHeader;
+    private String basicHeader;
+
+    @Setup
+    public void setUp() {
+        UserModel user = new UserModel(1L, "Felipe Enzo", "felipe@gmail.com", "17/08/2001");
+        bearerHeader = "Bearer " + JwtServiceBenchmark.newJwtService().generateToken(user, Map.of());
+        basicHeader = "Basic ZmVsaXBlQGdtYWlsLmNvbToxMjM0NTY=";
+    }
+
+    @Benchmark
+    public String bearerToken() {
+        return JwtAuthenticationFilter.extractBearerToken(bearerHeader);
+    }
+
+    @Benchmark
+    public String otherScheme() {
+        return JwtAuthenticationFilter.extractBearerToken(basicHeader);
+    }
+
+    @Benchmark
+    public String missingHeader() {
+        return JwtAuthenticationFilter.extractBearerToken(null);
+    }
+}
@@ -0,0 +1,101 @@
+package br.com.pipocarosa.benchmarks;
+
+import br.com.pipocarosa.config.JwtService;
+import br.com.pipocarosa.models.UserModel;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign and verify throughput of {@link JwtService}. The "rebuilding" variants reproduce
+ * the previous implementation, which decoded the secret and built a new key and parser
+ * on every call, so both can be compared in the same run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    static final String SECRET_KEY = "QSBKb3kgw6kgbWluaGEgZmlsaGEgZSBwcmEgc2VtcHJlIHZhaSBzZXI=";
+
+    private JwtService jwtService;
+    private UserModel user;
+    private Map<String, Object> extraClaims;
+    private String jwt;
+
+    @Setup
+    public void setUp() {
+        jwtService = newJwtService();
+        user = new UserModel(1L, "Felipe Enzo", "felipe@gmail.com", "17/08/2001");
+        extraClaims = Map.of(
+                JwtService.NAME_CLAIM, user.getName(),
+                JwtService.UUID_CLAIM, user.getUuid().toString(),
+                JwtService.ROLE_CLAIM, user.getRole().name(),
+                JwtService.PERMISSIONS_CLAIM, List.of("READ_PERSONAL_DATA"),
+                JwtService.GENERATION_CLAIM, 0
+        );
+        jwt = jwtService.generateToken(user, extraClaims);
+    }
+
+    static JwtService newJwtService() {
+        return new JwtService(SECRET_KEY, 30);
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtService.generateToken(user, extraClaims);
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return jwtService.extractAllClaims(jwt);
+    }
+
+    @Benchmark
+    public String extractEmail() {
+        return jwtService.extractEmail(jwt);
+    }
+
+    @Benchmark
+    public String signRebuildingKey() {
+        Date issuedAt = new Date(System.currentTimeMillis());
+        return Jwts.builder()
+                .setClaims(extraClaims)
+                .setSubject(user.getEmail())
+                .setIssuedAt(issuedAt)
+                .setExpiration(new Date(issuedAt.getTime() + TimeUnit.MINUTES.toMillis(30)))
+                .signWith(rebuildKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public Claims verifyRebuildingParser() {
+        return Jwts.parserBuilder().setSigningKey(rebuildKey()).build()
+                .parseClaimsJws(jwt).getBody();
+    }
+
+    private static Key rebuildKey() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY));
+    }
+}
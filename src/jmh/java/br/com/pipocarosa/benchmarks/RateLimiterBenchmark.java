@@ -0,0 +1,54 @@
+package br.com.pipocarosa.benchmarks;
+
+import br.com.pipocarosa.config.RateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token taken from the rate limiter by 8 threads, all on one key (the CAS contended)
+ * or spread over more keys than max-keys (buckets evicted as they go).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class RateLimiterBenchmark {
+
+    private static final RateLimiter.Limit LIMIT = new RateLimiter.Limit(20, 1);
+
+    @Param({"1", "1000000"})
+    private int keys;
+
+    private RateLimiter rateLimiter;
+    private String[] keyNames;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = new RateLimiter(100_000);
+        keyNames = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            keyNames[i] = "login:ip:10.0." + (i >>> 8) + "." + (i & 255);
+        }
+    }
+
+    @Benchmark
+    public long tryAcquire() {
+        return rateLimiter.tryAcquire(keyNames[ThreadLocalRandom.current().nextInt(keys)], LIMIT);
+    }
+}
@@ -0,0 +1,65 @@
+package br.com.pipocarosa.benchmarks;
+
+import br.com.pipocarosa.config.RouteAuthorizationManager;
+import br.com.pipocarosa.config.SecurityFilter;
+import br.com.pipocarosa.config.UserAuthenticationToken;
+import br.com.pipocarosa.config.VerifiedToken;
+import br.com.pipocarosa.models.enums.Role;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Authorization decision made for every request, with the application's route table,
+ * for an exact route, a "/**" route and a path without a rule.
+ * Run with "-prof gc" to see the allocation rate per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteAuthorizationManagerBenchmark {
+
+    @Param({"GET /users", "PUT /user/9b2c7e1a-4f4e-4d6b-9a51-0d3c2f8e7a10", "GET /unknown/path"})
+    private String route;
+
+    private RouteAuthorizationManager routeAuthorizationManager;
+    private RequestAuthorizationContext context;
+    private Supplier<Authentication> authentication;
+
+    @Setup
+    public void setUp() {
+        routeAuthorizationManager = SecurityFilter.routeAuthorizationManager();
+
+        String[] methodAndPath = route.split(" ");
+        context = new RequestAuthorizationContext(new MockHttpServletRequest(methodAndPath[0], methodAndPath[1]));
+
+        Authentication token = new UserAuthenticationToken(new VerifiedToken(
+                "felipe@gmail.com", UUID.randomUUID(), UUID.randomUUID(), 0, Role.ADMIN.getAuthorities(), Long.MAX_VALUE
+        ));
+        authentication = () -> token;
+    }
+
+    @Benchmark
+    public AuthorizationDecision check() {
+        return routeAuthorizationManager.check(authentication, context);
+    }
+}
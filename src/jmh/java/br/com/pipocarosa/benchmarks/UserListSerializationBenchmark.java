@@ -0,0 +1,73 @@
+package br.com.pipocarosa.benchmarks;
+
+import br.com.pipocarosa.config.JsonConfiguration;
+import br.com.pipocarosa.dtos.UserResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A /users body written to a stream, as the message converter writes it to the response,
+ * with reflective Jackson, with Blackbird alone and with the application's modules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserListSerializationBenchmark {
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    @Param({"reflective", "blackbird", "application"})
+    private String modules;
+
+    private ObjectMapper objectMapper;
+    private List<UserResponseDto> users;
+
+    @Setup
+    public void setUp() {
+        JsonConfiguration jsonConfiguration = new JsonConfiguration();
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+
+        switch (modules) {
+            case "blackbird" -> builder.modulesToInstall(jsonConfiguration.blackbirdModule());
+            case "application" -> builder.modulesToInstall(
+                    jsonConfiguration.blackbirdModule(), jsonConfiguration.responseSerializersModule()
+            );
+            default -> {
+            }
+        }
+        objectMapper = builder.build();
+
+        users = new ArrayList<>(rows);
+        LocalDate birthDate = LocalDate.of(1970, 1, 1);
+        for (int i = 0; i < rows; i++) {
+            users.add(new UserResponseDto("User " + i, "user" + i + "@gmail.com", birthDate.plusDays(i % 15_000)));
+        }
+    }
+
+    @Benchmark
+    public void writeUsers() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), users);
+    }
+}
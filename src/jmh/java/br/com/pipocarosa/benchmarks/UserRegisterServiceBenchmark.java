@@ -0,0 +1,45 @@
+package br.com.pipocarosa.benchmarks;
+
+import br.com.pipocarosa.services.UserRegisterService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Age check run on every registration, for an adult, an underage and an invalid birth date.
+ * Run with "-prof gc" to see the allocation rate per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserRegisterServiceBenchmark {
+
+    @Param({"17/08/2001", "09/02/2020", "31/02/2001"})
+    private String birthDate;
+
+    private UserRegisterService userRegisterService;
+
+    @Setup
+    public void setUp() {
+        // checkAge doesn't touch the repository, the service works without a context
+        userRegisterService = new UserRegisterService();
+    }
+
+    @Benchmark
+    public boolean checkAge() {
+        return userRegisterService.checkAge(birthDate);
+    }
+}
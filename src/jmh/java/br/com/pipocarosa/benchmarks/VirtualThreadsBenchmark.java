@@ -0,0 +1,118 @@
+package br.com.pipocarosa.benchmarks;
+
+import br.com.pipocarosa.config.ConcurrencyLimitingDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to serve a burst of requests on Tomcat's default 200 platform threads versus one
+ * virtual thread per request. Each request waits ioMillis outside the database (another
+ * service, the password hashing pool), then holds one of the 10 connections for
+ * queryMillis, with the connections capped by {@link ConcurrencyLimitingDataSource}.
+ *
+ * With short queries virtual threads finish the burst far sooner; once the queries
+ * dominate, both modes are bound by the pool and perform the same. The virtual mode needs
+ * a Java 21 JDK: mvn -Pjmh,java21 verify -Djmh.includes=VirtualThreadsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VirtualThreadsBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int POOL_SIZE = 10;
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param({"2000"})
+    private int requests;
+
+    @Param({"10"})
+    private long ioMillis;
+
+    @Param({"0", "1"})
+    private long queryMillis;
+
+    private Executor executor;
+    private ExecutorService platformExecutor;
+    private ConcurrencyLimitingDataSource dataSource;
+
+    @Setup
+    public void setUp() {
+        if (mode.equals("virtual")) {
+            executor = new VirtualThreadTaskExecutor("request-");
+        } else {
+            platformExecutor = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+            executor = platformExecutor;
+        }
+
+        // Stands in for the pool, only closing a connection is ever called
+        Connection connection = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> null
+        );
+        dataSource = new ConcurrencyLimitingDataSource(new AbstractDataSource() {
+            @Override
+            public Connection getConnection() {
+                return connection;
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) {
+                return connection;
+            }
+        }, POOL_SIZE, TimeUnit.SECONDS.toMillis(30));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (platformExecutor != null) {
+            platformExecutor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public void burst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(requests);
+
+        for (int i = 0; i < requests; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(ioMillis);
+                    try (Connection ignored = dataSource.getConnection()) {
+                        Thread.sleep(queryMillis);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+    }
+}
@@ -6,10 +6,17 @@ public class AuthenticationResponse {
 
     private String jwt;
     private final UUID uuid;
+    // Exchanged at /token/refresh for a new access token once the jwt expires
+    private final String refreshToken;
 
     public AuthenticationResponse(String jwt, UUID uuid) {
+        this(jwt, uuid, null);
+    }
+
+    public AuthenticationResponse(String jwt, UUID uuid, String refreshToken) {
         this.jwt = jwt;
         this.uuid = uuid;
+        this.refreshToken = refreshToken;
     }
 
     public String getJwt() {
@@ -23,4 +30,8 @@ public class AuthenticationResponse {
     public UUID getUuid() {
         return uuid;
     }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
 }
@@ -1,30 +1,46 @@
 package br.com.pipocarosa.authentication;
 
 import br.com.pipocarosa.config.JwtService;
+import br.com.pipocarosa.config.PasswordHashingExecutor;
+import br.com.pipocarosa.config.VerifiedToken;
+import br.com.pipocarosa.dtos.BatchRegisterRequestDto;
+import br.com.pipocarosa.dtos.BatchRegisterResultDto;
 import br.com.pipocarosa.dtos.UserRecordDto;
+import br.com.pipocarosa.exceptions.BusinessRulesException;
 import br.com.pipocarosa.exceptions.UserAlreadyExistsException;
 import br.com.pipocarosa.exceptions.UserNotFoundException;
 import br.com.pipocarosa.models.UserModel;
 import br.com.pipocarosa.models.enums.Role;
 import br.com.pipocarosa.repositories.UserRepository;
 import br.com.pipocarosa.services.UserQueryService;
+import br.com.pipocarosa.services.UserRegisterService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 @Service
 public class AuthenticationService {
 
-    @Autowired
-    private AuthenticationManager authenticationManager;
-
     @Autowired
     private UserRepository userRepository;
 
@@ -34,30 +50,130 @@ public class AuthenticationService {
     @Autowired
     private UserQueryService userQueryService;
 
+    @Autowired
+    private UserRegisterService userRegisterService;
+
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    // Queries after a hash continue here, neither on the hashing pool nor on the request thread
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor taskExecutor;
+
     private final PasswordEncoder passwordEncoder;
 
-    public AuthenticationService(PasswordEncoder passwordEncoder) {
+    private final MeterRegistry meterRegistry;
+
+    private final UserDetailsChecker accountStatusChecker = new AccountStatusUserDetailsChecker();
+
+    public AuthenticationService(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry) {
         this.passwordEncoder = passwordEncoder;
+        this.meterRegistry = meterRegistry;
     }
 
-    public AuthenticationResponse register(UserRecordDto request) {
+    public CompletableFuture<AuthenticationResponse> register(UserRecordDto request) {
+        return timedAsync("register", () -> doRegister(request));
+    }
 
-        var user = new UserModel();
-        user.setUuid(UUID.randomUUID());
-        user.setName(request.name());
-        user.setEmail(request.email());
-        user.setBirthDate(request.birthDate());
-        user.setPassword(passwordEncoder.encode(request.password()));
-        user.setRole(Role.USER);
-        userRepository.save(user);
+    public CompletableFuture<AuthenticationResponse> login(AuthenticationRequest authenticationRequest) {
+        return timedAsync("login", () -> doLogin(authenticationRequest));
+    }
+
+    public AuthenticationResponse refresh(RefreshTokenRequest request) {
+        return timed("refresh", () -> doRefresh(request));
+    }
+
+    // The refresh token is optional, without it only the access token stops working
+    public void logout(VerifiedToken token, RefreshTokenRequest request) {
+        tokenRevocationService.revoke(token);
+
+        if (request != null) {
+            refreshTokenService.revoke(request.refreshToken());
+        }
+    }
+
+    public CompletableFuture<List<BatchRegisterResultDto>> registerBatch(BatchRegisterRequestDto request) {
+        return timedAsync("register-batch", () -> doRegisterBatch(request));
+    }
+
+    private <T> T timed(String operation, Supplier<T> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        try {
+            T result = action.get();
+            record(sample, operation, null);
+            return result;
+        } catch (RuntimeException e) {
+            record(sample, operation, e);
+            throw e;
+        }
+    }
+
+    // Failures before the hash is submitted, such as an unknown email or a full pool, are thrown right away
+    private <T> CompletableFuture<T> timedAsync(String operation, Supplier<CompletableFuture<T>> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        try {
+            return action.get().whenComplete((result, failure) -> record(sample, operation, failure));
+        } catch (RuntimeException e) {
+            record(sample, operation, e);
+            throw e;
+        }
+    }
+
+    // Tagged with the exception's type when the operation fails, so rejections show apart from successes
+    private void record(Timer.Sample sample, String operation, Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+
+        sample.stop(Timer.builder("authentication.latency")
+                .description("Time spent registering or logging in a user, password hashing included")
+                .tag("operation", operation)
+                .tag("outcome", failure == null ? "success" : failure.getClass().getSimpleName())
+                .register(meterRegistry));
+    }
+
+    // Only encode and matches go to the hashing pool, the queries follow on the task executor
+    private CompletableFuture<AuthenticationResponse> doRegister(UserRecordDto request) {
+        return passwordHashingExecutor.supply(() -> passwordEncoder.encode(request.password()))
+                .thenApplyAsync(encodedPassword -> insertAndIssueTokens(newUser(request, encodedPassword)), taskExecutor);
+    }
+
+    private AuthenticationResponse insertAndIssueTokens(UserModel user) {
+
+        Optional<Long> id = userRepository.insertIfEmailAbsent(
+                user.getUuid(),
+                user.getName(),
+                user.getEmail(),
+                user.getBirthDate(),
+                user.getPassword(),
+                user.getRole().name()
+        );
+
+        if (id.isEmpty()) {
+            throw new UserAlreadyExistsException();
+        }
+
+        // The native insert bypasses Hibernate, so a cached miss for this email has to go explicitly
+        userRepository.evictCached(user.getEmail());
 
         String token = jwtService.generateToken(user, generateExtraClaims(user));
         UUID uuid = user.getUuid();
 
-        return new AuthenticationResponse(token, uuid);
+        return new AuthenticationResponse(token, uuid, refreshTokenService.issue(id.get(), user.getTokenGeneration()));
     }
 
-    public AuthenticationResponse login(AuthenticationRequest authenticationRequest) {
+    // The user is read once and reused for password verification, token generation and the response.
+    // Going through the AuthenticationManager would load it a second time via the UserDetailsService.
+    private CompletableFuture<AuthenticationResponse> doLogin(AuthenticationRequest authenticationRequest) {
 
         Optional<UserModel> optionalUser = userRepository.findByEmail(authenticationRequest.getEmail());
 
@@ -65,26 +181,156 @@ public class AuthenticationService {
             throw new UserNotFoundException();
         }
 
-        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                authenticationRequest.getEmail(), authenticationRequest.getPassword()
-        );
+        UserModel user = optionalUser.get();
 
-        authenticationManager.authenticate(authToken);
+        // Same checks DaoAuthenticationProvider runs, on the user loaded above
+        accountStatusChecker.check(user);
 
-        UserModel user = optionalUser.get();
+        String password = authenticationRequest.getPassword();
+
+        return passwordHashingExecutor.supply(() -> passwordEncoder.matches(password, user.getPassword()))
+                .thenCompose(matches -> {
+                    if (!matches) {
+                        throw new BadCredentialsException("Bad credentials");
+                    }
+
+                    // Hashes made with another algorithm or weaker parameters are replaced while the raw password is at hand
+                    if (!passwordEncoder.upgradeEncoding(user.getPassword())) {
+                        return CompletableFuture.<String>completedFuture(null);
+                    }
+                    return passwordHashingExecutor.supply(() -> passwordEncoder.encode(password));
+                })
+                .thenApplyAsync(rehashed -> {
+                    if (rehashed != null) {
+                        userRepository.updatePassword(user.getUuid(), rehashed)
+                                .ifPresent(id -> userRepository.evictCached(user.getUuid(), id));
+                    }
+
+                    String jwt = jwtService.generateToken(user, generateExtraClaims(user));
+                    UUID uuid = user.getUuid();
+
+                    return new AuthenticationResponse(
+                            jwt, uuid, refreshTokenService.issue(user.getId(), user.getTokenGeneration()));
+                }, taskExecutor);
+    }
+
+    // No password involved: one indexed update on the token's hash and the user, usually from the cache
+    private AuthenticationResponse doRefresh(RefreshTokenRequest request) {
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.refreshToken());
+        UserModel user = rotation.user();
 
         String jwt = jwtService.generateToken(user, generateExtraClaims(user));
-        UUID uuid = user.getUuid();
 
-        return new AuthenticationResponse(jwt, uuid);
+        return new AuthenticationResponse(jwt, user.getUuid(), rotation.refreshToken());
+    }
+
+    private CompletableFuture<List<BatchRegisterResultDto>> doRegisterBatch(BatchRegisterRequestDto request) {
+
+        List<UserRecordDto> records = request.users();
+        BatchRegisterResultDto[] results = new BatchRegisterResultDto[records.size()];
+
+        // One query for the whole batch instead of an existsByEmail per record
+        Set<String> existingEmails = userRepository.findExistingEmails(
+                records.stream().map(UserRecordDto::email).toList()
+        );
+
+        Set<String> batchEmails = new HashSet<>();
+        List<Integer> accepted = new ArrayList<>(records.size());
+
+        for (int i = 0; i < records.size(); i++) {
+            UserRecordDto record = records.get(i);
+
+            if (!userRegisterService.checkAge(record.birthDate())) {
+                results[i] = BatchRegisterResultDto.failed(record.email(),
+                        BatchRegisterResultDto.Status.REJECTED, new BusinessRulesException().getMessage());
+            } else if (existingEmails.contains(record.email()) || !batchEmails.add(record.email())) {
+                results[i] = BatchRegisterResultDto.failed(record.email(),
+                        BatchRegisterResultDto.Status.ALREADY_EXISTS, new UserAlreadyExistsException().getMessage());
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        // Hashes are computed in parallel on the bounded hashing pool
+        List<CompletableFuture<String>> encodedPasswords = new ArrayList<>(accepted.size());
+        try {
+            for (int i : accepted) {
+                String password = records.get(i).password();
+                encodedPasswords.add(passwordHashingExecutor.supply(() -> passwordEncoder.encode(password)));
+            }
+        } catch (RejectedExecutionException e) {
+            cancelAll(encodedPasswords);
+            throw e;
+        }
+
+        // One failed hash fails the batch before anything is inserted, the others needn't run
+        encodedPasswords.forEach(encodedPassword -> encodedPassword.whenComplete((result, failure) -> {
+            if (failure != null) {
+                cancelAll(encodedPasswords);
+            }
+        }));
+
+        return CompletableFuture.allOf(encodedPasswords.toArray(CompletableFuture[]::new))
+                .thenApplyAsync(ignored -> {
+                    List<UserModel> users = new ArrayList<>(accepted.size());
+                    for (int j = 0; j < accepted.size(); j++) {
+                        users.add(newUser(records.get(accepted.get(j)), encodedPasswords.get(j).join()));
+                    }
+
+                    // A single statement, so the accepted records are inserted all together or not at all.
+                    // An email registered by another request since the check above only fails its own record
+                    Map<String, Long> ids = userRepository.insertAllIfEmailAbsent(users);
+
+                    for (int j = 0; j < accepted.size(); j++) {
+                        results[accepted.get(j)] = result(users.get(j), ids.containsKey(users.get(j).getEmail()),
+                                request.issueTokens());
+                    }
+                    return List.of(results);
+                }, taskExecutor);
+    }
+
+    // Hashes still queued for a failed request would be wasted work
+    private static void cancelAll(List<? extends CompletableFuture<?>> futures) {
+        futures.forEach(future -> future.cancel(false));
+    }
+
+    private BatchRegisterResultDto result(UserModel user, boolean inserted, boolean issueToken) {
+
+        if (!inserted) {
+            return BatchRegisterResultDto.failed(user.getEmail(),
+                    BatchRegisterResultDto.Status.ALREADY_EXISTS, new UserAlreadyExistsException().getMessage());
+        }
+
+        // Inserted natively, so a cached miss for this email has to go explicitly
+        userRepository.evictCached(user.getEmail());
+
+        String jwt = issueToken ? jwtService.generateToken(user, generateExtraClaims(user)) : null;
+        return BatchRegisterResultDto.created(user.getEmail(), user.getUuid(), jwt);
+    }
+
+    private UserModel newUser(UserRecordDto request, String encodedPassword) {
+
+        var user = new UserModel();
+        user.setUuid(UUID.randomUUID());
+        user.setName(request.name());
+        user.setEmail(request.email());
+        user.setBirthDate(UserRegisterService.parseBirthDate(request.birthDate()));
+        user.setPassword(encodedPassword);
+        user.setRole(Role.USER);
+
+        return user;
     }
 
     private Map<String, Object> generateExtraClaims(UserModel user) {
 
         Map<String, Object> extraClaims = new HashMap<>();
 
-        extraClaims.put("name", user.getName());
-        extraClaims.put("role", user.getRole().name());
+        extraClaims.put(JwtService.NAME_CLAIM, user.getName());
+        extraClaims.put(JwtService.UUID_CLAIM, user.getUuid().toString());
+        extraClaims.put(JwtService.ROLE_CLAIM, user.getRole().name());
+        extraClaims.put(JwtService.PERMISSIONS_CLAIM, user.getRole().getPermissionNames());
+        extraClaims.put(JwtService.GENERATION_CLAIM, user.getTokenGeneration());
 
         return extraClaims;
     }
@@ -0,0 +1,7 @@
+package br.com.pipocarosa.authentication;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshTokenRequest(@NotBlank String refreshToken) {
+
+}
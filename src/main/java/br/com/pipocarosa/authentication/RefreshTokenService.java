@@ -0,0 +1,119 @@
+package br.com.pipocarosa.authentication;
+
+import br.com.pipocarosa.exceptions.InvalidTokenException;
+import br.com.pipocarosa.models.RefreshTokenModel;
+import br.com.pipocarosa.models.UserModel;
+import br.com.pipocarosa.repositories.RefreshTokenRepository;
+import br.com.pipocarosa.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Opaque refresh tokens, exchanged once each for a new access token and a new refresh token.
+ * A token is looked up by the SHA-256 of its value through a unique index. Presenting a token
+ * that was already exchanged revokes every token rotated from the same login.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${security.jwt.refresh.expiration-days}")
+    private long expirationDays;
+
+    public record Rotation(UserModel user, String refreshToken) {
+    }
+
+    // Starts a new family, for a login or a registration
+    public String issue(Long userId, int tokenGeneration) {
+        return issue(userRepository.getReferenceById(userId), UUID.randomUUID(), tokenGeneration);
+    }
+
+    @Transactional(noRollbackFor = InvalidTokenException.class)
+    public Rotation rotate(String refreshToken) {
+
+        byte[] tokenHash = hash(refreshToken);
+
+        Optional<RefreshTokenRepository.RotatedToken> optionalRotated = refreshTokenRepository.rotate(tokenHash);
+
+        if (optionalRotated.isEmpty()) {
+            // Unknown and expired tokens are just rejected, an exchanged one means it was copied
+            refreshTokenRepository.findRotatedFamilyIdByTokenHash(tokenHash).ifPresent(familyId -> {
+                LOGGER.warn("Refresh token reused, revoking its family {}", familyId);
+                refreshTokenRepository.deleteByFamilyId(familyId);
+            });
+            throw new InvalidTokenException();
+        }
+
+        RefreshTokenRepository.RotatedToken rotated = optionalRotated.get();
+        Optional<UserModel> optionalUser = userRepository.findById(rotated.getUserId());
+
+        if (optionalUser.isEmpty() || optionalUser.get().getTokenGeneration() != rotated.getTokenGeneration()) {
+            refreshTokenRepository.deleteByFamilyId(rotated.getFamilyId());
+            throw new InvalidTokenException();
+        }
+
+        UserModel user = optionalUser.get();
+
+        // Kept out of login, which is a single lookup plus the insert of the new token
+        refreshTokenRepository.deleteExpired(user.getId(), Instant.now());
+
+        return new Rotation(user, issue(user, rotated.getFamilyId(), user.getTokenGeneration()));
+    }
+
+    // Logout: the token and every one rotated from the same login
+    @Transactional
+    public void revoke(String refreshToken) {
+        refreshTokenRepository.findFamilyIdByTokenHash(hash(refreshToken))
+                .ifPresent(refreshTokenRepository::deleteByFamilyId);
+    }
+
+    private String issue(UserModel user, UUID familyId, int tokenGeneration) {
+
+        byte[] token = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(token);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+
+        refreshTokenRepository.save(new RefreshTokenModel(
+                hash(refreshToken),
+                user,
+                familyId,
+                tokenGeneration,
+                Instant.now().plus(Duration.ofDays(expirationDays))
+        ));
+
+        return refreshToken;
+    }
+
+    private static byte[] hash(String refreshToken) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
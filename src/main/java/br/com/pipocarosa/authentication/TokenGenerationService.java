@@ -0,0 +1,70 @@
+package br.com.pipocarosa.authentication;
+
+import br.com.pipocarosa.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the current token generation of recently seen users in memory, so checking
+ * whether a token is still valid costs a map lookup and, at most once per
+ * time-to-live, a single-column query.
+ */
+@Service
+public class TokenGenerationService {
+
+    // Generation reported for users that no longer exist, never matches a token
+    private static final int DELETED = -1;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${security.jwt.generation.ttl-seconds}")
+    private long ttlSeconds;
+
+    @Value("${security.jwt.generation.max-size}")
+    private int maxSize;
+
+    private final Map<UUID, KnownGeneration> generations = new ConcurrentHashMap<>();
+
+    private record KnownGeneration(int generation, long loadedAtNanos) {
+    }
+
+    public boolean isCurrent(UUID uuid, int generation) {
+        return currentGeneration(uuid) == generation;
+    }
+
+    public void remember(UUID uuid, int generation) {
+        store(uuid, new KnownGeneration(generation, System.nanoTime()));
+    }
+
+    public void invalidate(UUID uuid) {
+        generations.remove(uuid);
+    }
+
+    private int currentGeneration(UUID uuid) {
+        long now = System.nanoTime();
+        KnownGeneration known = generations.get(uuid);
+
+        if (known == null || now - known.loadedAtNanos() > TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+            int generation = userRepository.findTokenGenerationByUuid(uuid).orElse(DELETED);
+            known = new KnownGeneration(generation, now);
+            store(uuid, known);
+        }
+
+        return known.generation();
+    }
+
+    private void store(UUID uuid, KnownGeneration known) {
+        // Entries are cheap to reload, so the bound is enforced by simply starting over
+        if (generations.size() >= maxSize) {
+            generations.clear();
+        }
+        generations.put(uuid, known);
+    }
+}
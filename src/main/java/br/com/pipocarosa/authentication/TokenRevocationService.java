@@ -0,0 +1,88 @@
+package br.com.pipocarosa.authentication;
+
+import br.com.pipocarosa.config.RevokedTokenSet;
+import br.com.pipocarosa.config.VerifiedToken;
+import br.com.pipocarosa.models.RevokedTokenModel;
+import br.com.pipocarosa.repositories.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Revokes tokens before they expire, through the revoked_tokens table. Every instance
+ * reads the rows added since its last refresh into {@link RevokedTokenSet}, so checking
+ * a request's token is an in-memory probe and never a query.
+ */
+@Service
+public class TokenRevocationService {
+
+    // A row is stamped when its transaction starts and may commit after a refresh that
+    // read past it, so every refresh reads this far back again
+    private static final Duration COMMIT_LAG = Duration.ofSeconds(5);
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private RevokedTokenSet revokedTokenSet;
+
+    @Autowired
+    private TokenGenerationService tokenGenerationService;
+
+    @Value("${security.jwt.expiration-minutes}")
+    private long expirationMinutes;
+
+    private Instant lastRevokedAt = Instant.EPOCH;
+
+    public boolean isRevoked(VerifiedToken token) {
+        return token.jti() != null && revokedTokenSet.contains(token.jti());
+    }
+
+    // Logout: the token itself, on every instance after its next refresh and here right away
+    public void revoke(VerifiedToken token) {
+        if (token.jti() == null) {
+            return;
+        }
+
+        revokedTokenRepository.insertToken(token.jti(), Instant.ofEpochMilli(token.expiresAtMillis()));
+        revokedTokenSet.add(token.jti(), token.expiresAtMillis());
+    }
+
+    // Password changes and deletions: the user's generation already changed, this makes the other
+    // instances read it again on their next refresh instead of when their cached generation expires
+    public void revokeUser(UUID uuid) {
+        revokedTokenRepository.insertUser(uuid, Instant.now().plus(Duration.ofMinutes(expirationMinutes)));
+        tokenGenerationService.invalidate(uuid);
+    }
+
+    @PostConstruct
+    @Scheduled(
+            fixedDelayString = "${security.jwt.revocation.refresh-millis}",
+            initialDelayString = "${security.jwt.revocation.refresh-millis}"
+    )
+    public synchronized void refresh() {
+        Instant now = Instant.now();
+
+        for (RevokedTokenModel revoked : revokedTokenRepository.findRevokedSince(lastRevokedAt.minus(COMMIT_LAG), now)) {
+            if (revoked.getJti() != null) {
+                revokedTokenSet.add(revoked.getJti(), revoked.getExpiresAt().toEpochMilli());
+            }
+            if (revoked.getUserUuid() != null) {
+                tokenGenerationService.invalidate(revoked.getUserUuid());
+            }
+            if (revoked.getRevokedAt().isAfter(lastRevokedAt)) {
+                lastRevokedAt = revoked.getRevokedAt();
+            }
+        }
+
+        revokedTokenSet.removeExpired(now.toEpochMilli());
+        // Off the logout path; every instance purges, it's one indexed delete and usually finds nothing
+        revokedTokenRepository.deleteExpired(now);
+    }
+}
@@ -0,0 +1,124 @@
+package br.com.pipocarosa.config;
+
+import br.com.pipocarosa.authentication.AuthenticationResponse;
+import br.com.pipocarosa.dtos.UserResponseDto;
+import br.com.pipocarosa.models.UserModel;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.ser.std.UUIDSerializer;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Jackson modules, picked up by Spring Boot's ObjectMapper. Blackbird replaces reflective
+ * property access with generated lambdas for every type, and the bodies returned the most,
+ * one per user on /users, are written field by field with pre-encoded names, straight to
+ * the response stream.
+ */
+@Configuration
+public class JsonConfiguration {
+
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Bean
+    public Module responseSerializersModule() {
+        return new SimpleModule("ResponseSerializers")
+                .addSerializer(UserResponseDto.class, new UserResponseDtoSerializer())
+                .addSerializer(AuthenticationResponse.class, new AuthenticationResponseSerializer());
+    }
+
+    // Same output as the dto's @JsonFormat birth date
+    private static final class UserResponseDtoSerializer extends StdSerializer<UserResponseDto> {
+
+        private static final SerializableString NAME = new SerializedString("name");
+        private static final SerializableString EMAIL = new SerializedString("email");
+        private static final SerializableString BIRTH_DATE = new SerializedString("birthDate");
+
+        private static final DateTimeFormatter BIRTH_DATE_FORMAT = DateTimeFormatter.ofPattern(UserModel.BIRTH_DATE_PATTERN);
+
+        private UserResponseDtoSerializer() {
+            super(UserResponseDto.class);
+        }
+
+        @Override
+        public void serialize(UserResponseDto user, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(user);
+            generator.writeFieldName(NAME);
+            generator.writeString(user.name());
+            generator.writeFieldName(EMAIL);
+            generator.writeString(user.email());
+            generator.writeFieldName(BIRTH_DATE);
+            writeBirthDate(generator, user.birthDate());
+            generator.writeEndObject();
+        }
+
+        private static void writeBirthDate(JsonGenerator generator, LocalDate birthDate) throws IOException {
+            if (birthDate == null) {
+                generator.writeNull();
+                return;
+            }
+
+            int year = birthDate.getYear();
+            if (year < 0 || year > 9999) {
+                generator.writeString(BIRTH_DATE_FORMAT.format(birthDate));
+                return;
+            }
+
+            int day = birthDate.getDayOfMonth();
+            int month = birthDate.getMonthValue();
+            char[] chars = {
+                    digit(day / 10), digit(day % 10), '/',
+                    digit(month / 10), digit(month % 10), '/',
+                    digit(year / 1000), digit(year / 100 % 10), digit(year / 10 % 10), digit(year % 10)
+            };
+            generator.writeString(chars, 0, chars.length);
+        }
+
+        private static char digit(int value) {
+            return (char) ('0' + value);
+        }
+    }
+
+    private static final class AuthenticationResponseSerializer extends StdSerializer<AuthenticationResponse> {
+
+        private static final SerializableString JWT = new SerializedString("jwt");
+        private static final SerializableString UUID = new SerializedString("uuid");
+        private static final SerializableString REFRESH_TOKEN = new SerializedString("refreshToken");
+
+        // Writes the uuid's characters without creating its String
+        private static final UUIDSerializer UUID_SERIALIZER = new UUIDSerializer();
+
+        private AuthenticationResponseSerializer() {
+            super(AuthenticationResponse.class);
+        }
+
+        @Override
+        public void serialize(AuthenticationResponse response, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(response);
+            generator.writeFieldName(JWT);
+            generator.writeString(response.getJwt());
+            generator.writeFieldName(UUID);
+            if (response.getUuid() == null) {
+                generator.writeNull();
+            } else {
+                UUID_SERIALIZER.serialize(response.getUuid(), generator, provider);
+            }
+            generator.writeFieldName(REFRESH_TOKEN);
+            generator.writeString(response.getRefreshToken());
+            generator.writeEndObject();
+        }
+    }
+}
@@ -1,32 +1,83 @@
 package br.com.pipocarosa.config;
 
+import br.com.pipocarosa.authentication.TokenGenerationService;
+import br.com.pipocarosa.authentication.TokenRevocationService;
 import br.com.pipocarosa.exceptions.InvalidTokenException;
 import br.com.pipocarosa.models.UserModel;
 import br.com.pipocarosa.repositories.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String BEARER_PREFIX = "Bearer ";
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private TokenGenerationService tokenGenerationService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("handlerExceptionResolver")
+    private HandlerExceptionResolver handlerExceptionResolver;
+
+    // Trusts the signed role and permissions claims instead of loading the user
+    @Value("${security.jwt.stateless}")
+    private boolean stateless;
+
+    // Time spent authenticating a bearer token, by outcome
+    private Timer cachedTimer;
+    private Timer verifiedTimer;
+    private Timer rejectedTimer;
+
+    @Override
+    protected void initFilterBean() {
+        cachedTimer = outcomeTimer("cached");
+        verifiedTimer = outcomeTimer("verified");
+        rejectedTimer = outcomeTimer("rejected");
+    }
+
+    private Timer outcomeTimer(String outcome) {
+        return Timer.builder("jwt.filter.latency")
+                .description("Time spent authenticating a request's bearer token")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
     @Override
     protected void doFilterInternal(
             HttpServletRequest request,
@@ -40,37 +91,61 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
             String authHeader = request.getHeader("Authorization"); // Bearer jwt
 
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            // 2 - obtain jwt token
+
+            String jwt = extractBearerToken(authHeader);
+
+            if (jwt == null) {
                 filterChain.doFilter(request, response);
                 return;
             }
 
-            // 2 - obtain jwt token
+            // 3 - reuse a previously verified token, otherwise verify it and resolve its user
+            // (timed up to the security context, the rest of the chain is in http.server.requests)
 
-            String jwt = authHeader.split(" ")[1];
+            long startNanos = System.nanoTime();
+            Timer timer = rejectedTimer;
 
-            // 3 - obtain subject/username in jwt
+            try {
+                VerifiedToken verifiedToken = verifiedTokenCache.get(jwt);
+                Timer successTimer = cachedTimer;
 
-            String email = jwtService.extractEmail(jwt);
+                if (verifiedToken == null) {
+                    verifiedToken = verifyToken(jwt);
+                    verifiedTokenCache.put(jwt, verifiedToken);
+                    successTimer = verifiedTimer;
+                }
 
-            // 4 - set authenticate object inside our security context
+                // Role changes and deletions bump the user's generation, invalidating older tokens
 
-            Optional<UserModel> optionalUser = userRepository.findByEmail(email);
+                if (!tokenGenerationService.isCurrent(verifiedToken.uuid(), verifiedToken.generation())) {
+                    throw new InvalidTokenException();
+                }
 
-            if(optionalUser.isEmpty()) {
-                throw new InvalidTokenException();
-            }
-            UserModel user = optionalUser.get();
+                // Logged out tokens, a Bloom filter probe unless the token is revoked or a false positive
+
+                if (tokenRevocationService.isRevoked(verifiedToken)) {
+                    throw new InvalidTokenException();
+                }
+
+                // 4 - set authenticate object inside our security context
 
-            SecurityContext context = SecurityContextHolder.createEmptyContext();
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
 
-            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                    email, null, user.getAuthorities()
-            );
+                UserAuthenticationToken authToken = new UserAuthenticationToken(verifiedToken);
 
-            context.setAuthentication(authToken);
+                context.setAuthentication(authToken);
 
-            SecurityContextHolder.setContext(context);
+                SecurityContextHolder.setContext(context);
+
+                timer = successTimer;
+            } catch (InvalidTokenException | JwtException e) {
+                // Answered like the controllers' errors, the request goes no further
+                handlerExceptionResolver.resolveException(request, response, null, e);
+                return;
+            } finally {
+                timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
 
             // 5 execute rest of the filters
 
@@ -82,4 +157,47 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 //        }
 
     }
+
+    // Token of a "Bearer <jwt>" header, null when the header is missing or uses another scheme
+    public static String extractBearerToken(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        return authHeader.substring(BEARER_PREFIX.length());
+    }
+
+    private VerifiedToken verifyToken(String jwt) {
+
+        Claims claims = jwtService.extractAllClaims(jwt);
+
+        // Tokens issued before the role and permissions claims existed always go through the database
+        if (stateless) {
+            VerifiedToken verifiedToken = VerifiedToken.fromClaims(claims);
+            if (verifiedToken != null) {
+                return verifiedToken;
+            }
+        }
+
+        String email = claims.getSubject();
+        Integer generation = claims.get(JwtService.GENERATION_CLAIM, Integer.class);
+        long expiresAt = claims.getExpiration().getTime();
+
+        Optional<UserModel> optionalUser = userRepository.findByEmail(email);
+
+        if(optionalUser.isEmpty()) {
+            throw new InvalidTokenException();
+        }
+        UserModel user = optionalUser.get();
+
+        tokenGenerationService.remember(user.getUuid(), user.getTokenGeneration());
+
+        return new VerifiedToken(
+                email,
+                user.getUuid(),
+                VerifiedToken.jtiOf(claims),
+                generation == null ? 0 : generation,
+                List.copyOf(user.getAuthorities()),
+                expiresAt
+        );
+    }
 }
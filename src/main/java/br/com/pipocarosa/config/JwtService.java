@@ -2,6 +2,7 @@ package br.com.pipocarosa.config;
 
 import br.com.pipocarosa.models.UserModel;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -12,23 +13,40 @@ import org.springframework.stereotype.Service;
 import java.security.Key;
 import java.util.Date;
 import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class JwtService {
 
-    @Value("${security.jwt.expiration-minutes}")
-    private Long EXPIRATION_MINUTES;
+    public static final String NAME_CLAIM = "name";
+    public static final String UUID_CLAIM = "uuid";
+    public static final String ROLE_CLAIM = "role";
+    public static final String PERMISSIONS_CLAIM = "permissions";
+    public static final String GENERATION_CLAIM = "gen";
 
-    @Value("${security.jwt.secrete-key}")
-    private String SECRET_KEY;
+    private final long expirationMillis;
+
+    // Immutable and thread-safe, built once from the secret; a new secret takes a restart
+    private final Key key;
+    private final JwtParser parser;
+
+    public JwtService(
+            @Value("${security.jwt.secrete-key}") String secretKey,
+            @Value("${security.jwt.expiration-minutes}") long expirationMinutes
+    ) {
+        this.expirationMillis = expirationMinutes * 60 * 1000;
+        this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+    }
 
     public String generateToken(UserModel user, Map<String, Object> extraClaims) {
 
         Date issuedAt = new Date(System.currentTimeMillis());
-        Date expiration = new Date(issuedAt.getTime() + (EXPIRATION_MINUTES * 60 * 1000));
+        Date expiration = new Date(issuedAt.getTime() + expirationMillis);
 
         return Jwts.builder()
                 .setClaims(extraClaims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(user.getEmail())
                 .setIssuedAt(issuedAt)
                 .setExpiration(expiration)
@@ -37,17 +55,15 @@ public class JwtService {
     }
 
     public Key generateKey() {
-        byte[] secretAsBytes = Decoders.BASE64.decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(secretAsBytes);
+        return key;
     }
 
     public String extractEmail(String jwt) {
         return extractAllClaims(jwt).getSubject();
     }
 
-    private Claims extractAllClaims(String jwt) {
+    public Claims extractAllClaims(String jwt) {
 
-        return Jwts.parserBuilder().setSigningKey(generateKey()).build()
-                .parseClaimsJws(jwt).getBody();
+        return parser.parseClaimsJws(jwt).getBody();
     }
 }
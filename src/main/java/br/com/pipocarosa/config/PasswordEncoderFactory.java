@@ -0,0 +1,152 @@
+package br.com.pipocarosa.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the password encoder from the security.password.* properties.
+ *
+ * New hashes are prefixed with the algorithm id ("{bcrypt}" or "{argon2}"), hashes
+ * stored before that are read as BCrypt. Any hash with another algorithm or weaker
+ * parameters than the configured ones is reported by upgradeEncoding, so it gets
+ * rehashed on the next successful login.
+ *
+ * On startup the configured parameters are timed against the latency budget. With
+ * auto-tune on, the cost is raised (never lowered) as far as the budget allows, up to
+ * a fixed maximum.
+ */
+@Component
+public class PasswordEncoderFactory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PasswordEncoderFactory.class);
+
+    private static final String BCRYPT = "bcrypt";
+    private static final String ARGON2 = "argon2";
+
+    // Auto-tune never goes past these, whatever the budget: strength 16 already takes seconds
+    private static final int MAX_TUNED_BCRYPT_STRENGTH = 16;
+    private static final int MAX_TUNED_ARGON2_ITERATIONS = 64;
+    private static final int CALIBRATION_SAMPLES = 3;
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    @Value("${security.password.algorithm}")
+    private String algorithm;
+
+    @Value("${security.password.bcrypt.strength}")
+    private int bcryptStrength;
+
+    @Value("${security.password.argon2.salt-length}")
+    private int argon2SaltLength;
+
+    @Value("${security.password.argon2.hash-length}")
+    private int argon2HashLength;
+
+    @Value("${security.password.argon2.parallelism}")
+    private int argon2Parallelism;
+
+    @Value("${security.password.argon2.memory-kib}")
+    private int argon2MemoryKib;
+
+    @Value("${security.password.argon2.iterations}")
+    private int argon2Iterations;
+
+    @Value("${security.password.calibration.enabled}")
+    private boolean calibrationEnabled;
+
+    @Value("${security.password.calibration.auto-tune}")
+    private boolean autoTune;
+
+    @Value("${security.password.calibration.target-millis}")
+    private long targetMillis;
+
+    public PasswordEncoder create() {
+
+        if (calibrationEnabled) {
+            calibrate();
+        }
+
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        PasswordEncoder argon2 = newArgon2Encoder(argon2Iterations);
+
+        String idForEncode = ARGON2.equalsIgnoreCase(algorithm) ? ARGON2 : BCRYPT;
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(
+                idForEncode, Map.of(BCRYPT, bcrypt, ARGON2, argon2)
+        );
+        // Hashes created before the prefix existed are plain BCrypt
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        return encoder;
+    }
+
+    private void calibrate() {
+
+        long targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+
+        if (ARGON2.equalsIgnoreCase(algorithm)) {
+            long nanos = measureNanos(newArgon2Encoder(argon2Iterations));
+
+            if (autoTune && argon2Iterations < MAX_TUNED_ARGON2_ITERATIONS) {
+                double nanosPerIteration = Math.max((double) nanos / argon2Iterations, 1);
+                int tuned = (int) Math.min(MAX_TUNED_ARGON2_ITERATIONS, targetNanos / nanosPerIteration);
+
+                if (tuned > argon2Iterations) {
+                    argon2Iterations = tuned;
+                    nanos = measureNanos(newArgon2Encoder(argon2Iterations));
+                }
+            }
+
+            report("argon2 (m=" + argon2MemoryKib + "KiB, t=" + argon2Iterations + ", p=" + argon2Parallelism + ")", nanos);
+            return;
+        }
+
+        long nanos = measureNanos(new BCryptPasswordEncoder(bcryptStrength));
+
+        // Every extra round of strength doubles the cost; each step is timed rather than extrapolated
+        if (autoTune) {
+            while (bcryptStrength < MAX_TUNED_BCRYPT_STRENGTH && nanos * 2 <= targetNanos) {
+                bcryptStrength++;
+                nanos = measureNanos(new BCryptPasswordEncoder(bcryptStrength));
+            }
+        }
+
+        report("bcrypt (strength=" + bcryptStrength + ")", nanos);
+    }
+
+    private Argon2PasswordEncoder newArgon2Encoder(int iterations) {
+        return new Argon2PasswordEncoder(
+                argon2SaltLength, argon2HashLength, argon2Parallelism, argon2MemoryKib, iterations
+        );
+    }
+
+    private long measureNanos(PasswordEncoder encoder) {
+        encoder.encode(CALIBRATION_PASSWORD);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CALIBRATION_SAMPLES; i++) {
+            encoder.encode(CALIBRATION_PASSWORD);
+        }
+
+        return (System.nanoTime() - start) / CALIBRATION_SAMPLES;
+    }
+
+    private void report(String parameters, long nanos) {
+        String millis = String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+
+        if (nanos > TimeUnit.MILLISECONDS.toNanos(targetMillis)) {
+            LOGGER.warn("Password hashing with {} takes {} ms, above the {} ms budget", parameters, millis, targetMillis);
+        } else {
+            LOGGER.info("Password hashing with {} takes {} ms, budget is {} ms", parameters, millis, targetMillis);
+        }
+    }
+}
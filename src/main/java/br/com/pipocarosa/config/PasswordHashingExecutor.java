@@ -0,0 +1,65 @@
+package br.com.pipocarosa.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead for password hashing: CPU-heavy BCrypt work runs on a fixed number of
+ * threads behind a bounded queue, so it can't starve the request threads. Only the
+ * hashing itself is submitted, callers continue their database work elsewhere. The
+ * queue holds a few tasks per thread, so once it's full {@link #supply} fails fast
+ * with a {@link RejectedExecutionException} rather than letting waits grow.
+ * Deliberately not exposed as an Executor bean, otherwise Spring would pick it up as
+ * the application's default task executor.
+ */
+@Component
+public class PasswordHashingExecutor implements DisposableBean {
+
+    private static final int DEFAULT_QUEUED_PER_THREAD = 4;
+
+    private final ThreadPoolExecutor executor;
+
+    // Instrumented view of the pool: queue depth, active threads, wait and execution times
+    private final ExecutorService monitoredExecutor;
+
+    public PasswordHashingExecutor(
+            @Value("${security.password.hashing.threads}") int threads,
+            @Value("${security.password.hashing.queue-capacity}") int queueCapacity,
+            MeterRegistry meterRegistry
+    ) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        int queueSize = queueCapacity > 0 ? queueCapacity : poolSize * DEFAULT_QUEUED_PER_THREAD;
+
+        this.executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.monitoredExecutor = ExecutorServiceMetrics.monitor(meterRegistry, executor, "password.hashing");
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, monitoredExecutor);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
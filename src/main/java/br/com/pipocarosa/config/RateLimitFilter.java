@@ -0,0 +1,266 @@
+package br.com.pipocarosa.config;
+
+import br.com.pipocarosa.exceptions.TooManyRequestsException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the unauthenticated endpoints that hash passwords, per client address and per
+ * email, before any hashing is queued. Every other request is passed through after a
+ * method check and a map lookup.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    // The body is read up to the end of its top-level object, anything after is streamed to the controller untouched
+    private static final int MAX_PEEKED_BODY_BYTES = 16384;
+
+    // Requests whose email can't be found within the peeked bytes all share this bucket
+    private static final String UNKNOWN_EMAIL = "?";
+
+    // Longest valid address (RFC 5321), longer ones share the unknown bucket instead of a key of their own
+    private static final int MAX_EMAIL_LENGTH = 254;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("handlerExceptionResolver")
+    private HandlerExceptionResolver handlerExceptionResolver;
+
+    @Value("${security.rate-limit.enabled}")
+    private boolean enabled;
+
+    @Value("${security.rate-limit.login.per-ip.capacity}")
+    private int loginPerIpCapacity;
+
+    @Value("${security.rate-limit.login.per-ip.refill-seconds}")
+    private long loginPerIpRefillSeconds;
+
+    @Value("${security.rate-limit.login.per-email.capacity}")
+    private int loginPerEmailCapacity;
+
+    @Value("${security.rate-limit.login.per-email.refill-seconds}")
+    private long loginPerEmailRefillSeconds;
+
+    @Value("${security.rate-limit.register.per-ip.capacity}")
+    private int registerPerIpCapacity;
+
+    @Value("${security.rate-limit.register.per-ip.refill-seconds}")
+    private long registerPerIpRefillSeconds;
+
+    @Value("${security.rate-limit.register.per-email.capacity}")
+    private int registerPerEmailCapacity;
+
+    @Value("${security.rate-limit.register.per-email.refill-seconds}")
+    private long registerPerEmailRefillSeconds;
+
+    // Limited POST routes by path
+    private Map<String, Route> routes;
+
+    private record Route(String name, RateLimiter.Limit perIp, RateLimiter.Limit perEmail) {
+    }
+
+    @Override
+    protected void initFilterBean() {
+        routes = Map.of(
+                "/login", new Route(
+                        "login",
+                        RateLimiter.Limit.of(loginPerIpCapacity, loginPerIpRefillSeconds),
+                        RateLimiter.Limit.of(loginPerEmailCapacity, loginPerEmailRefillSeconds)
+                ),
+                "/register", new Route(
+                        "register",
+                        RateLimiter.Limit.of(registerPerIpCapacity, registerPerIpRefillSeconds),
+                        RateLimiter.Limit.of(registerPerEmailCapacity, registerPerEmailRefillSeconds)
+                )
+        );
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"POST".equals(request.getMethod()) || !routes.containsKey(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        Route route = routes.get(request.getRequestURI());
+
+        long waitNanos = rateLimiter.tryAcquire(route.name() + ":ip:" + request.getRemoteAddr(), route.perIp());
+
+        if (waitNanos == 0) {
+            PeekedBodyRequest peekedRequest = new PeekedBodyRequest(request);
+            request = peekedRequest;
+
+            // Malformed bodies are still rejected by the controller's validation, but padding can't
+            // push the email out of reach to skip its limit
+            String email = peekedRequest.readEmail();
+            waitNanos = rateLimiter.tryAcquire(
+                    route.name() + ":email:" + (email == null ? UNKNOWN_EMAIL : email), route.perEmail()
+            );
+        }
+
+        if (waitNanos > 0) {
+            long retryAfterSeconds = (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+            handlerExceptionResolver.resolveException(request, response, null, new TooManyRequestsException(retryAfterSeconds));
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    // Replays the bytes read to find the email ahead of the rest of the body
+    private class PeekedBodyRequest extends HttpServletRequestWrapper {
+
+        private final ByteArrayOutputStream peeked = new ByteArrayOutputStream();
+
+        private ServletInputStream inputStream;
+
+        private PeekedBodyRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        // Streams the top-level fields, skipping nested values, up to the end of the object or the peek limit.
+        // Jackson binds the last of repeated fields, so a body with two emails has none as far as the limit goes:
+        // otherwise a changing first one would get a fresh bucket for the email actually tried
+        private String readEmail() {
+            try (JsonParser parser = objectMapper.getFactory().createParser(new PeekingInputStream())) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return null;
+                }
+
+                String email = null;
+                boolean emailSeen = false;
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+
+                    if ("email".equals(field)) {
+                        if (emailSeen) {
+                            return null;
+                        }
+                        emailSeen = true;
+                        email = value == JsonToken.VALUE_STRING ? parser.getText().trim().toLowerCase(Locale.ROOT) : null;
+                    }
+                    parser.skipChildren();
+                }
+
+                // Only a complete object rules out another email past the peeked bytes
+                if (parser.currentToken() != JsonToken.END_OBJECT || email == null || email.length() > MAX_EMAIL_LENGTH) {
+                    return null;
+                }
+                return email;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                ServletInputStream original = super.getInputStream();
+                ByteArrayInputStream replayed = new ByteArrayInputStream(peeked.toByteArray());
+
+                inputStream = new ServletInputStream() {
+
+                    @Override
+                    public int read() throws IOException {
+                        int b = replayed.read();
+                        return b != -1 ? b : original.read();
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        if (replayed.available() > 0) {
+                            return replayed.read(b, off, len);
+                        }
+                        return original.read(b, off, len);
+                    }
+
+                    @Override
+                    public boolean isFinished() {
+                        return replayed.available() == 0 && original.isFinished();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return replayed.available() > 0 || original.isReady();
+                    }
+
+                    @Override
+                    public void setReadListener(ReadListener readListener) {
+                        original.setReadListener(readListener);
+                    }
+                };
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            return new BufferedReader(new InputStreamReader(getInputStream(), getCharacterEncoding() == null
+                    ? StandardCharsets.UTF_8 : Charset.forName(getCharacterEncoding())));
+        }
+
+        // Keeps every byte the parser reads, and ends the body early once the limit is reached
+        private class PeekingInputStream extends InputStream {
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int remaining = MAX_PEEKED_BODY_BYTES - peeked.size();
+                if (remaining <= 0) {
+                    return -1;
+                }
+
+                int n = PeekedBodyRequest.super.getInputStream().read(b, off, Math.min(len, remaining));
+                if (n > 0) {
+                    peeked.write(b, off, n);
+                }
+                return n;
+            }
+        }
+    }
+}
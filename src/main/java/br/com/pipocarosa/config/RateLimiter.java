@@ -0,0 +1,132 @@
+package br.com.pipocarosa.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets by key, split into stripes that are each bounded and swept on their own.
+ *
+ * A bucket is a single AtomicLong holding the time at which it will be full again
+ * (GCRA), so taking a token is one CAS and a bucket that's already full carries no
+ * state and can be dropped without changing what it would answer.
+ */
+@Component
+public class RateLimiter {
+
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final int stripeCapacity;
+
+    public RateLimiter(@Value("${security.rate-limit.max-keys}") int maxKeys) {
+        stripeCapacity = Math.max(1, maxKeys / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // Refill of one token every refillNanos, up to capacity tokens
+    public record Limit(int capacity, long refillNanos) {
+
+        public Limit {
+            if (capacity < 1 || refillNanos < 1) {
+                throw new IllegalArgumentException("Rate limit needs a positive capacity and refill interval");
+            }
+        }
+
+        public static Limit of(int capacity, long refillSeconds) {
+            return new Limit(capacity, TimeUnit.SECONDS.toNanos(refillSeconds));
+        }
+
+        long burstNanos() {
+            return capacity * refillNanos;
+        }
+    }
+
+    /**
+     * Takes a token from the key's bucket.
+     *
+     * @return 0 when a token was taken, otherwise the nanoseconds until one is available
+     */
+    public long tryAcquire(String key, Limit limit) {
+        Stripe stripe = stripes[stripeOf(key)];
+        long now = System.nanoTime();
+
+        AtomicLong bucket = stripe.buckets.get(key);
+        if (bucket == null) {
+            if (stripe.buckets.size() >= stripeCapacity) {
+                stripe.evict(now);
+            }
+            bucket = stripe.buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + limit.refillNanos();
+            long waitNanos = next - now - limit.burstNanos();
+
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        for (Stripe stripe : stripes) {
+            stripe.buckets.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.buckets.size();
+        }
+        return size;
+    }
+
+    private static int stripeOf(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    private final class Stripe {
+
+        private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+        private final AtomicBoolean evicting = new AtomicBoolean();
+
+        // Idle buckets are full and dropped first. A token taken from a bucket while it's
+        // being dropped is lost, which only ever lets that key through once more.
+        private void evict(long now) {
+            if (!evicting.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                buckets.values().removeIf(bucket -> bucket.get() <= now);
+
+                // Every key is limited right now: drop arbitrary ones until 10% of the stripe is free
+                int target = stripeCapacity - Math.max(1, stripeCapacity / 10);
+                Iterator<AtomicLong> iterator = buckets.values().iterator();
+                while (buckets.size() > target && iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package br.com.pipocarosa.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections of read-only transactions to a replica and everything else to the
+ * primary. Must be used behind a LazyConnectionDataSourceProxy, so the connection is only
+ * taken once the transaction's read-only flag is known.
+ *
+ * Reads go to the primary as well when the current user wrote something within the sticky
+ * window, so they see their own changes, and when no replica is within the allowed lag.
+ * A replica that fails to hand out a connection is left out until its next lag check.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final String PRIMARY = "primary";
+
+    // Zero while the replica has replayed everything it received, so an idle primary doesn't look like lag
+    private static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() " +
+            "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE CAST(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 AS BIGINT) END";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+
+    // Users who wrote within the sticky window, by name
+    private final Cache<String, Boolean> recentWriters;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private volatile List<Replica> healthyReplicas = List.of();
+
+    // Also the lookup key of its connections
+    private record Replica(String name, DataSource dataSource) {
+    }
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration stickyWindow, long maxLagMillis) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas.size());
+        this.maxLagMillis = maxLagMillis;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(stickyWindow)
+                .maximumSize(100_000)
+                .build();
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = new Replica("replica-" + i, replicas.get(i));
+            this.replicas.add(replica);
+            targets.put(replica, replica.dataSource());
+        }
+
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String user = currentUser();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (user != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                recentWriters.put(user, Boolean.TRUE);
+            }
+            return PRIMARY;
+        }
+
+        if (user != null && recentWriters.getIfPresent(user) != null) {
+            return PRIMARY;
+        }
+
+        List<Replica> healthy = healthyReplicas;
+        if (healthy.isEmpty()) {
+            return PRIMARY;
+        }
+        return healthy.get(Math.floorMod(nextReplica.getAndIncrement(), healthy.size()));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!(determineCurrentLookupKey() instanceof Replica replica)) {
+            return primary.getConnection();
+        }
+
+        try {
+            return replica.dataSource().getConnection();
+        } catch (SQLException e) {
+            LOGGER.warn("Replica {} unavailable, reading from the primary until its next check", replica.name(), e);
+            markUnhealthy(replica);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        checkReplicas();
+    }
+
+    // A replica is only read from after a check found it within the allowed lag
+    @Scheduled(fixedDelayString = "${datasource.replicas.check-millis}")
+    public void checkReplicas() {
+        List<Replica> healthy = new ArrayList<>(replicas.size());
+
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource().getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+
+                resultSet.next();
+                long lagMillis = resultSet.getLong(1);
+
+                if (lagMillis <= maxLagMillis) {
+                    healthy.add(replica);
+                } else {
+                    LOGGER.warn("Replica {} is {} ms behind, reading from the others meanwhile", replica.name(), lagMillis);
+                }
+            } catch (SQLException e) {
+                LOGGER.warn("Replica {} failed its lag check: {}", replica.name(), e.getMessage());
+            }
+        }
+
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    public int getHealthyReplicaCount() {
+        return healthyReplicas.size();
+    }
+
+    // Replica pools aren't beans, so they're closed with this one
+    public void close() {
+        for (Replica replica : replicas) {
+            if (replica.dataSource() instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    LOGGER.warn("Failed to close replica {}", replica.name(), e);
+                }
+            }
+        }
+    }
+
+    private synchronized void markUnhealthy(Replica replica) {
+        healthyReplicas = healthyReplicas.stream().filter(r -> r != replica).toList();
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || authentication instanceof AnonymousAuthenticationToken
+                ? null : authentication.getName();
+    }
+}
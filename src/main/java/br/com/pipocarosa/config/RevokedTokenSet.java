@@ -0,0 +1,127 @@
+package br.com.pipocarosa.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ids ("jti") of revoked tokens that haven't expired yet. A Bloom filter answers for
+ * almost every token that isn't revoked without touching the exact set, which only
+ * settles the filter's positives.
+ *
+ * Lookups take no lock. Additions and rebuilds are serialized, a rebuild replaces the
+ * filter once expired ids are dropped or the set outgrows what the filter was sized for.
+ */
+@Component
+public class RevokedTokenSet {
+
+    @Value("${security.jwt.revocation.expected-revocations}")
+    private int expectedRevocations;
+
+    @Value("${security.jwt.revocation.false-positive-rate}")
+    private double falsePositiveRate;
+
+    // Revoked id to the token's expiration
+    private final Map<UUID, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter;
+
+    // Ids dropped from the set that are still in the filter
+    private int stale;
+
+    public boolean contains(UUID jti) {
+        BloomFilter current = filter;
+        return (current == null || current.mightContain(jti)) && revoked.containsKey(jti);
+    }
+
+    public synchronized void add(UUID jti, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis() || revoked.putIfAbsent(jti, expiresAtMillis) != null) {
+            return;
+        }
+
+        if (filter == null || revoked.size() > filter.capacity()) {
+            rebuild();
+        } else {
+            filter.put(jti);
+        }
+    }
+
+    public synchronized void removeExpired(long nowMillis) {
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+        stale += before - revoked.size();
+
+        // Every stale id adds to the false positive rate until the filter is rebuilt
+        if (filter != null && stale > filter.capacity() / 10) {
+            rebuild();
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    private void rebuild() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2), falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+        stale = 0;
+    }
+
+    static final class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+        private final int capacity;
+
+        BloomFilter(int capacity, double falsePositiveRate) {
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) / 64));
+            this.bitCount = bits.length() * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+            this.capacity = capacity;
+        }
+
+        int capacity() {
+            return capacity;
+        }
+
+        void put(UUID jti) {
+            long h1 = mix(jti.getMostSignificantBits());
+            long h2 = mix(jti.getLeastSignificantBits());
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(UUID jti) {
+            long h1 = mix(jti.getMostSignificantBits());
+            long h2 = mix(jti.getLeastSignificantBits());
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Version and variant bits of random UUIDs are fixed, so the halves are mixed before use
+        private static long mix(long value) {
+            value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+            value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return value ^ (value >>> 33);
+        }
+    }
+}
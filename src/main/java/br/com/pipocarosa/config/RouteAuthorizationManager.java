@@ -0,0 +1,221 @@
+package br.com.pipocarosa.config;
+
+import br.com.pipocarosa.models.enums.Permission;
+import br.com.pipocarosa.models.enums.Role;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Authorizes requests against a route table built once at startup.
+ *
+ * The path is walked segment by segment through a trie, comparing regions of the request
+ * URI in place, and the rule found is checked with a bitmask AND against the masks carried
+ * by {@link UserAuthenticationToken}. Nothing is allocated per request.
+ *
+ * An exact route wins over a "/**" one, and a deeper "/**" over a shallower one. A "/**"
+ * route also matches its own prefix, "/user/**" matches "/user". Requests no route matches
+ * are denied.
+ */
+public class RouteAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private static final String WILDCARD = "**";
+    private static final int METHODS = 8;
+
+    private final Node root;
+
+    private RouteAuthorizationManager(Node root) {
+        this.root = root;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        HttpServletRequest request = context.getRequest();
+
+        int method = methodIndex(request.getMethod());
+        if (method < 0) {
+            return DENIED;
+        }
+
+        Rule rule = find(method, request.getRequestURI(), request.getContextPath().length());
+        if (rule == null) {
+            return DENIED;
+        }
+
+        return rule.allows(authentication) ? GRANTED : DENIED;
+    }
+
+    private Rule find(int method, String path, int position) {
+        Node node = root;
+        Rule wildcard = node.wildcardRules[method];
+        int length = path.length();
+
+        while (position < length && path.charAt(position) == '/') {
+            int start = position + 1;
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+
+            node = node.child(path, start, end - start);
+            if (node == null) {
+                return wildcard;
+            }
+            if (node.wildcardRules[method] != null) {
+                wildcard = node.wildcardRules[method];
+            }
+            position = end;
+        }
+
+        if (position < length) {
+            return wildcard;
+        }
+
+        Rule exact = node.rules[method];
+        return exact != null ? exact : wildcard;
+    }
+
+    private static int methodIndex(String method) {
+        return switch (method) {
+            case "GET" -> 0;
+            case "HEAD" -> 1;
+            case "POST" -> 2;
+            case "PUT" -> 3;
+            case "PATCH" -> 4;
+            case "DELETE" -> 5;
+            case "OPTIONS" -> 6;
+            case "TRACE" -> 7;
+            default -> -1;
+        };
+    }
+
+    // No masks means no requirement, the authentication isn't even resolved
+    private record Rule(long permissionMask, long roleMask) {
+
+        boolean allows(Supplier<Authentication> supplier) {
+            if (permissionMask == 0 && roleMask == 0) {
+                return true;
+            }
+
+            Authentication authentication = supplier.get();
+            long permissions;
+            long roles;
+
+            if (authentication instanceof UserAuthenticationToken token) {
+                permissions = token.getPermissionMask();
+                roles = token.getRoleMask();
+            } else if (authentication != null && authentication.isAuthenticated()) {
+                permissions = Permission.maskOf(authentication.getAuthorities());
+                roles = Role.maskOf(authentication.getAuthorities());
+            } else {
+                return false;
+            }
+
+            return (permissions & permissionMask) == permissionMask && (roles & roleMask) == roleMask;
+        }
+    }
+
+    private static final class Node {
+
+        private final String segment;
+        private Node[] children = new Node[0];
+
+        // Indexed by methodIndex; rules for this exact path, and "/**" rules rooted here
+        private final Rule[] rules = new Rule[METHODS];
+        private final Rule[] wildcardRules = new Rule[METHODS];
+
+        Node(String segment) {
+            this.segment = segment;
+        }
+
+        Node child(String path, int offset, int length) {
+            for (Node child : children) {
+                if (child.segment.length() == length && path.regionMatches(offset, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        Node getOrAddChild(String segment) {
+            Node child = child(segment, 0, segment.length());
+            if (child == null) {
+                child = new Node(segment);
+                children = Arrays.copyOf(children, children.length + 1);
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+    }
+
+    public static final class Builder {
+
+        private final Node root = new Node("");
+
+        private Builder() {
+        }
+
+        public Builder permitAll(HttpMethod method, String pattern) {
+            return add(method, pattern, new Rule(0, 0));
+        }
+
+        public Builder hasPermission(HttpMethod method, String pattern, Permission permission) {
+            return add(method, pattern, new Rule(permission.mask(), 0));
+        }
+
+        public Builder hasRole(HttpMethod method, String pattern, Role role) {
+            return add(method, pattern, new Rule(0, role.mask()));
+        }
+
+        public RouteAuthorizationManager build() {
+            return new RouteAuthorizationManager(root);
+        }
+
+        // A null method applies the rule to every method; the first rule added for a route wins
+        private Builder add(HttpMethod method, String pattern, Rule rule) {
+            if (!pattern.startsWith("/")) {
+                throw new IllegalArgumentException("Route must start with '/': " + pattern);
+            }
+
+            String[] segments = pattern.substring(1).split("/", -1);
+            boolean wildcard = segments[segments.length - 1].equals(WILDCARD);
+            int depth = wildcard ? segments.length - 1 : segments.length;
+
+            Node node = root;
+            for (int i = 0; i < depth; i++) {
+                if (segments[i].contains("*")) {
+                    throw new IllegalArgumentException("Only a trailing \"/**\" is supported: " + pattern);
+                }
+                node = node.getOrAddChild(segments[i]);
+            }
+
+            Rule[] rules = wildcard ? node.wildcardRules : node.rules;
+            if (method == null) {
+                for (int i = 0; i < METHODS; i++) {
+                    if (rules[i] == null) {
+                        rules[i] = rule;
+                    }
+                }
+            } else {
+                int index = methodIndex(method.name());
+                if (rules[index] == null) {
+                    rules[index] = rule;
+                }
+            }
+            return this;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package br.com.pipocarosa.config;
 
 import br.com.pipocarosa.models.enums.Permission;
+import br.com.pipocarosa.models.enums.Role;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -22,36 +24,53 @@ public class SecurityFilter {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
 
         http
                 .csrf(csrfConfig -> csrfConfig.disable())
+                // POST /logout revokes the bearer token, there's no session for the default handler to end
+                .logout(logoutConfig -> logoutConfig.disable())
                 .sessionManagement(sessionMangConfig ->
                         sessionMangConfig.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider)
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(rateLimitFilter, JwtAuthenticationFilter.class)
                 .authorizeHttpRequests(
                         authConfig -> {
-                            authConfig.requestMatchers(HttpMethod.POST, "/register").permitAll();
-                            authConfig.requestMatchers(HttpMethod.POST, "/login").permitAll();
-                            authConfig.requestMatchers("/error").permitAll();
-                            authConfig.requestMatchers(HttpMethod.GET, "/users")
-                                    .hasAuthority(Permission.READ_ALL_DATA.name());
-                            authConfig.requestMatchers(HttpMethod.GET, "/user/**")
-                                    .hasAuthority(Permission.READ_PERSONAL_DATA.name());
-                            authConfig.requestMatchers(HttpMethod.DELETE, "/user/**")
-                                    .hasAuthority(Permission.READ_PERSONAL_DATA.name());
-                            authConfig.requestMatchers(HttpMethod.PUT, "/user/**")
-                                    .hasAuthority(Permission.READ_PERSONAL_DATA.name());
-                            authConfig.requestMatchers(HttpMethod.PUT, "password/**")
-                                    .hasAuthority(Permission.READ_PERSONAL_DATA.name());
-                            authConfig.anyRequest().denyAll();
+                            // Async endpoints resume in a second dispatch, already authorized by the first one
+                            authConfig.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
+                            authConfig.anyRequest().access(routeAuthorizationManager());
                         }
                 );
         return http.build();
     }
 
+    // Routes without a rule are denied
+    public static RouteAuthorizationManager routeAuthorizationManager() {
+        return RouteAuthorizationManager.builder()
+                .permitAll(HttpMethod.POST, "/register")
+                .permitAll(HttpMethod.POST, "/login")
+                .permitAll(HttpMethod.POST, "/token/refresh")
+                .hasRole(HttpMethod.POST, "/register/batch", Role.ADMIN)
+                .permitAll(null, "/error")
+                .permitAll(HttpMethod.GET, "/actuator/health")
+                // Scraped without a token; actuator is only served on management.server.port, kept internal
+                .permitAll(HttpMethod.GET, "/actuator/prometheus")
+                .hasPermission(HttpMethod.GET, "/actuator/**", Permission.READ_ALL_DATA)
+                .hasRole(HttpMethod.GET, "/users/by-birth-date", Role.ADMIN)
+                .hasPermission(HttpMethod.GET, "/users", Permission.READ_ALL_DATA)
+                .hasPermission(HttpMethod.GET, "/user/**", Permission.READ_PERSONAL_DATA)
+                .hasPermission(HttpMethod.DELETE, "/user/**", Permission.READ_PERSONAL_DATA)
+                .hasPermission(HttpMethod.PUT, "/user/**", Permission.READ_PERSONAL_DATA)
+                .hasPermission(HttpMethod.PUT, "/password/**", Permission.READ_PERSONAL_DATA)
+                .hasPermission(HttpMethod.POST, "/logout", Permission.READ_PERSONAL_DATA)
+                .build();
+    }
+
 
 
 
@@ -0,0 +1,34 @@
+package br.com.pipocarosa.config;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+/**
+ * Authentication set by {@link JwtAuthenticationFilter}. Besides the usual authorities it
+ * carries them as bitmasks, which is all {@link RouteAuthorizationManager} looks at.
+ */
+public class UserAuthenticationToken extends UsernamePasswordAuthenticationToken {
+
+    private final VerifiedToken verifiedToken;
+    private final long permissionMask;
+    private final long roleMask;
+
+    public UserAuthenticationToken(VerifiedToken token) {
+        super(token.email(), null, token.authorities());
+        this.verifiedToken = token;
+        this.permissionMask = token.permissionMask();
+        this.roleMask = token.roleMask();
+    }
+
+    // The bearer token this authentication came from
+    public VerifiedToken getVerifiedToken() {
+        return verifiedToken;
+    }
+
+    public long getPermissionMask() {
+        return permissionMask;
+    }
+
+    public long getRoleMask() {
+        return roleMask;
+    }
+}
@@ -0,0 +1,92 @@
+package br.com.pipocarosa.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local second-level cache for users. Hibernate keeps the entity state in the "users"
+ * region and the uuid to id mapping in "users-by-uuid", both Caffeine caches bounded by
+ * size and age. Switched off with users.cache.enabled=false.
+ *
+ * The cache is per instance: changes made through another instance are only seen here
+ * once the entries age out, after users.cache.ttl-seconds at most.
+ *
+ * Hits, misses, puts and evictions of each region are published as cache.* metrics.
+ */
+@Configuration
+public class UserCacheConfiguration {
+
+    public static final String USERS_REGION = "users";
+    public static final String USERS_BY_UUID_REGION = "users-by-uuid";
+
+    private static final List<String> REGIONS = List.of(USERS_REGION, USERS_BY_UUID_REGION);
+
+    @Value("${users.cache.enabled}")
+    private boolean enabled;
+
+    @Value("${users.cache.max-size}")
+    private long maxSize;
+
+    @Value("${users.cache.ttl-seconds}")
+    private long ttlSeconds;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager userCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+
+        // Own URI, so every application context gets its own regions instead of the provider's shared manager
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create(USERS_REGION + "-" + System.identityHashCode(this)), getClass().getClassLoader()
+        );
+
+        for (String region : REGIONS) {
+            cacheManager.createCache(region, new CaffeineConfiguration<>()
+                    .setMaximumSize(OptionalLong.of(maxSize))
+                    .setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)))
+                    // Hibernate already stores a disassembled copy, no need to serialize it again
+                    .setStoreByValue(false)
+                    // Read by the metrics below, through the cache's statistics MBean
+                    .setStatisticsEnabled(true));
+        }
+
+        return cacheManager;
+    }
+
+    @Bean
+    public MeterBinder userCacheMetrics(CacheManager userCacheManager) {
+        return registry -> {
+            for (String region : REGIONS) {
+                JCacheMetrics.monitor(registry, userCacheManager.getCache(region));
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer userCacheHibernateProperties(CacheManager userCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, enabled);
+
+            if (enabled) {
+                properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+                properties.put(ConfigSettings.CACHE_MANAGER, userCacheManager);
+                properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            }
+        };
+    }
+}
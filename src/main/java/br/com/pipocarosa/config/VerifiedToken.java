@@ -0,0 +1,73 @@
+package br.com.pipocarosa.config;
+
+import br.com.pipocarosa.models.enums.Permission;
+import br.com.pipocarosa.models.enums.Role;
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public record VerifiedToken(
+        String email,
+        UUID uuid,
+        // Null for tokens issued before they carried an id, those can't be revoked one by one
+        UUID jti,
+        int generation,
+        Collection<? extends GrantedAuthority> authorities,
+        long expiresAtMillis,
+        // The authorities again as bitmasks, computed once per token for RouteAuthorizationManager
+        long permissionMask,
+        long roleMask
+) {
+
+    public VerifiedToken(
+            String email,
+            UUID uuid,
+            UUID jti,
+            int generation,
+            Collection<? extends GrantedAuthority> authorities,
+            long expiresAtMillis
+    ) {
+        this(email, uuid, jti, generation, authorities, expiresAtMillis,
+                Permission.maskOf(authorities), Role.maskOf(authorities));
+    }
+
+    // Authentication signed into the token's claims, null for tokens issued without them
+    public static VerifiedToken fromClaims(Claims claims) {
+        String uuid = claims.get(JwtService.UUID_CLAIM, String.class);
+        String role = claims.get(JwtService.ROLE_CLAIM, String.class);
+        List<?> permissions = claims.get(JwtService.PERMISSIONS_CLAIM, List.class);
+        Integer generation = claims.get(JwtService.GENERATION_CLAIM, Integer.class);
+
+        if (uuid == null || role == null || permissions == null || generation == null) {
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = new ArrayList<>(permissions.size() + 1);
+        for (Object permission : permissions) {
+            authorities.add(new SimpleGrantedAuthority(permission.toString()));
+        }
+        authorities.add(new SimpleGrantedAuthority(Role.ROLE_PREFIX + role));
+
+        return new VerifiedToken(
+                claims.getSubject(),
+                UUID.fromString(uuid),
+                jtiOf(claims),
+                generation,
+                List.copyOf(authorities),
+                claims.getExpiration().getTime()
+        );
+    }
+
+    public static UUID jtiOf(Claims claims) {
+        return claims.getId() == null ? null : UUID.fromString(claims.getId());
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
@@ -0,0 +1,118 @@
+package br.com.pipocarosa.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of bearer tokens whose signature was already verified.
+ * Entries expire at the token's own "exp" claim, so a hit never outlives the token.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    @Value("${security.jwt.cache.enabled}")
+    private boolean enabled;
+
+    @Value("${security.jwt.cache.max-size}")
+    private int maxSize;
+
+    private final Map<String, VerifiedToken> entries = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public VerifiedToken get(String jwt) {
+        if (!enabled) {
+            return null;
+        }
+
+        VerifiedToken token = entries.get(jwt);
+
+        if (token == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (token.isExpired(System.currentTimeMillis())) {
+            if (entries.remove(jwt, token)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return token;
+    }
+
+    public void put(String jwt, VerifiedToken token) {
+        if (!enabled) {
+            return;
+        }
+
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+
+        entries.put(jwt, token);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    // Only one thread sweeps at a time; the others keep inserting, so the
+    // bound may be exceeded briefly by at most the number of concurrent writers.
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            entries.entrySet().removeIf(entry -> {
+                boolean expired = entry.getValue().isExpired(now);
+                if (expired) {
+                    evictions.increment();
+                }
+                return expired;
+            });
+
+            // Nothing expired: drop arbitrary entries until 10% of the capacity is free again
+            int target = maxSize - Math.max(1, maxSize / 10);
+            Iterator<String> iterator = entries.keySet().iterator();
+            while (entries.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictions.increment();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,74 @@
+package br.com.pipocarosa.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Active when requests run on virtual threads (the virtual-threads profile, on Java 21).
+ * Spring Boot already moves Tomcat and the application task executor to virtual threads,
+ * this adds the database side: connections are handed out behind a semaphore sized to the
+ * Hikari pool, and pinned carrier threads are reported.
+ *
+ * Virtual threads make waiting cheap, not connections: size the pool for the database, not
+ * for the number of concurrent requests. Password hashing stays on its own platform pool.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfiguration {
+
+    // Hikari's own default, which it only applies once the pool starts
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    @ConditionalOnProperty(name = "virtual-threads.connection-limit.enabled", havingValue = "true")
+    public static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    int poolSize = hikari.getMaximumPoolSize() > 0 ? hikari.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+                    return new ConcurrencyLimitingDataSource(hikari, poolSize, hikari.getConnectionTimeout());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder concurrencyLimitingDataSourceMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ConcurrencyLimitingDataSource limitingDataSource) {
+                Gauge.builder("datasource.concurrency.waiting", limitingDataSource,
+                                ConcurrencyLimitingDataSource::getWaitingThreads)
+                        .description("Threads waiting for a permit to take a connection")
+                        .register(registry);
+                Gauge.builder("datasource.concurrency.available", limitingDataSource,
+                                ConcurrencyLimitingDataSource::getAvailablePermits)
+                        .description("Permits left before threads start waiting for a connection")
+                        .register(registry);
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "virtual-threads.pinning.enabled", havingValue = "true")
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            @Value("${virtual-threads.pinning.threshold-millis}") long thresholdMillis,
+            @Value("${virtual-threads.pinning.stack-depth}") int stackDepth,
+            MeterRegistry meterRegistry
+    ) {
+        return new VirtualThreadPinningMonitor(Duration.ofMillis(thresholdMillis), stackDepth, meterRegistry);
+    }
+}
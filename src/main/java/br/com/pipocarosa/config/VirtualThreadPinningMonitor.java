@@ -0,0 +1,89 @@
+package br.com.pipocarosa.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier thread, blocking inside a
+ * synchronized block or a native frame, for longer than the threshold. Each one is logged
+ * with the top of its stack trace, which points at the code holding the monitor (a
+ * Hibernate, pgjdbc or cache path), and recorded in the jvm.threads.virtual.pinned timer.
+ *
+ * Listens to JFR's jdk.VirtualThreadPinned event in-process, no recording file is written.
+ */
+public class VirtualThreadPinningMonitor implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final Duration threshold;
+    private final int stackDepth;
+    private final Timer pinnedTimer;
+
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningMonitor(Duration threshold, int stackDepth, MeterRegistry meterRegistry) {
+        this.threshold = threshold;
+        this.stackDepth = stackDepth;
+        this.pinnedTimer = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Time virtual threads spent pinned to their carrier thread")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::report);
+        recordingStream.startAsync();
+    }
+
+    @Override
+    public void destroy() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    private void report(RecordedEvent event) {
+        pinnedTimer.record(event.getDuration());
+
+        if (LOGGER.isWarnEnabled()) {
+            LOGGER.warn("Virtual thread {} pinned to its carrier for {} ms{}",
+                    event.getThread() == null ? "?" : event.getThread().getJavaName(),
+                    event.getDuration().toMillis(),
+                    topFrames(event.getStackTrace()));
+        }
+    }
+
+    private String topFrames(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "";
+        }
+
+        StringBuilder frames = new StringBuilder();
+        List<RecordedFrame> recordedFrames = stackTrace.getFrames();
+        for (int i = 0; i < Math.min(stackDepth, recordedFrames.size()); i++) {
+            RecordedFrame frame = recordedFrames.get(i);
+            frames.append("\n\tat ")
+                    .append(frame.getMethod().getType().getName())
+                    .append('.')
+                    .append(frame.getMethod().getName())
+                    .append(':')
+                    .append(frame.getLineNumber());
+        }
+        return frames.toString();
+    }
+}
@@ -3,33 +3,52 @@ package br.com.pipocarosa.controller;
 import br.com.pipocarosa.authentication.AuthenticationRequest;
 import br.com.pipocarosa.authentication.AuthenticationResponse;
 import br.com.pipocarosa.authentication.AuthenticationService;
+import br.com.pipocarosa.authentication.RefreshTokenRequest;
+import br.com.pipocarosa.config.UserAuthenticationToken;
+import br.com.pipocarosa.dtos.BatchRegisterRequestDto;
+import br.com.pipocarosa.dtos.BatchRegisterResultDto;
 import br.com.pipocarosa.dtos.PasswordUpdateDto;
 import br.com.pipocarosa.dtos.UserIdentifierDto;
+import br.com.pipocarosa.dtos.UserPageDto;
 import br.com.pipocarosa.dtos.UserRecordDto;
+import br.com.pipocarosa.dtos.UserResponseDto;
 import br.com.pipocarosa.dtos.UserUpdateDto;
+import br.com.pipocarosa.dtos.VersionedUserResponseDto;
 import br.com.pipocarosa.exceptions.BusinessRulesException;
+import br.com.pipocarosa.exceptions.PreconditionFailedException;
 import br.com.pipocarosa.models.UserModel;
 import br.com.pipocarosa.repositories.UserRepository;
 import br.com.pipocarosa.services.UserQueryService;
 import br.com.pipocarosa.services.UserRegisterService;
 import br.com.pipocarosa.services.UserUpdateService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @AllArgsConstructor
 public class UserRegisterController {
 
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String TOTAL_COUNT_ESTIMATE_HEADER = "X-Total-Count-Estimate";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private final UserRegisterService userRegisterService;
 
@@ -46,23 +65,62 @@ public class UserRegisterController {
     private AuthenticationService authenticationService;
 
     @GetMapping("/users")
-    public ResponseEntity<List<UserRecordDto>> getAllUsers() {
-        List<UserModel> users = userRepository.findAll();
-        List<UserRecordDto> usersDto = users.stream()
-                .map(user -> new UserRecordDto(
-                        user.getName(),
-                        user.getEmail(),
-                        user.getBirthDate(),
-                        user.getPassword())
-                )
-                .collect(Collectors.toList());
-        return ResponseEntity.ok().body(usersDto);
+    public ResponseEntity<List<UserResponseDto>> getAllUsers(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        UserPageDto page = userQueryService.getUsersPage(after, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(TOTAL_COUNT_ESTIMATE_HEADER, String.valueOf(userQueryService.estimateUserCount()));
+
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.nextCursor()));
+            response.header(HttpHeaders.LINK, ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", page.nextCursor())
+                    .replaceQueryParam("limit", limit)
+                    .toUriString() + "; rel=\"next\"");
+        }
+
+        return response.body(page.users());
+    }
+
+    @GetMapping(value = "/users", produces = NDJSON_VALUE)
+    public void streamAllUsers(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON_VALUE);
+        response.setHeader(TOTAL_COUNT_ESTIMATE_HEADER, String.valueOf(userQueryService.estimateUserCount()));
+        userQueryService.streamUsers(response.getOutputStream());
     }
 
+    // Dates in dd/MM/yyyy, ages in years; any combination of bounds can be given
+    @GetMapping("/users/by-birth-date")
+    public ResponseEntity<List<UserResponseDto>> getUsersByBirthDate(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        List<UserResponseDto> users = userQueryService.findUsersByBirthDate(
+                from == null ? null : UserRegisterService.parseBirthDate(from),
+                to == null ? null : UserRegisterService.parseBirthDate(to),
+                minAge,
+                maxAge,
+                limit
+        );
+        return ResponseEntity.ok(users);
+    }
+
+    // Strong ETag from the user's version. A client polling with If-None-Match gets a 304 from the version alone
     @GetMapping("/user/{uuid}")
-    public ResponseEntity<UserRecordDto> getUser(@PathVariable UUID uuid) {
-        UserRecordDto userDto = userQueryService.getOneUser(uuid);
-        return ResponseEntity.ok().body(userDto);
+    public ResponseEntity<UserResponseDto> getUser(@PathVariable UUID uuid, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && request.checkNotModified(eTag(userQueryService.getUserVersion(uuid)))) {
+            return null;
+        }
+
+        VersionedUserResponseDto versionedUser = userQueryService.getOneUser(uuid);
+        return ResponseEntity.ok().eTag(eTag(versionedUser.version())).body(versionedUser.user());
     }
 
     @DeleteMapping("/user/{uuid}")
@@ -71,34 +129,94 @@ public class UserRegisterController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    // BCrypt endpoints release the request thread while the hash runs on the password hashing pool
     @PostMapping("/register")
-    public ResponseEntity<AuthenticationResponse> saveUser(@RequestBody @Valid UserRecordDto userRecordDto) {
+    public CompletableFuture<ResponseEntity<AuthenticationResponse>> saveUser(@RequestBody @Valid UserRecordDto userRecordDto) {
         userRegisterService.validateUser(userRecordDto);
-        return ResponseEntity.status(HttpStatus.CREATED).body(authenticationService.register(userRecordDto));
+        return authenticationService.register(userRecordDto)
+                .thenApply(response -> ResponseEntity.status(HttpStatus.CREATED).body(response));
+    }
+
+    @PostMapping("/register/batch")
+    public CompletableFuture<ResponseEntity<List<BatchRegisterResultDto>>> saveUsers(
+            @RequestBody @Valid BatchRegisterRequestDto batchRegisterRequestDto
+    ) {
+        return authenticationService.registerBatch(batchRegisterRequestDto).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/login")
-    public ResponseEntity<AuthenticationResponse> authenticate(
+    public CompletableFuture<ResponseEntity<AuthenticationResponse>> authenticate(
             @RequestBody @Valid AuthenticationRequest request
     ) {
-        return ResponseEntity.ok(authenticationService.login(request));
+        return authenticationService.login(request).thenApply(ResponseEntity::ok);
     }
 
+    @PostMapping("/token/refresh")
+    public ResponseEntity<AuthenticationResponse> refreshToken(@RequestBody @Valid RefreshTokenRequest request) {
+        return ResponseEntity.ok(authenticationService.refresh(request));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @RequestBody(required = false) @Valid RefreshTokenRequest request,
+            UserAuthenticationToken authentication
+    ) {
+        authenticationService.logout(authentication.getVerifiedToken(), request);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    // With If-Match the update only applies to the version the client read, otherwise 412
     @PutMapping("/user/{uuid}")
     public ResponseEntity<String> updateUser(
             @RequestBody @Valid UserUpdateDto userUpdateDto,
-            @PathVariable UUID uuid
+            @PathVariable UUID uuid,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        userUpdateService.updateUser(userUpdateDto, uuid);
-        return ResponseEntity.status(HttpStatus.OK).body("User updated");
+        Optional<Long> version = userUpdateService.updateUser(userUpdateDto, uuid, expectedVersions(ifMatch));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        version.ifPresent(v -> response.eTag(eTag(v)));
+        return response.body("User updated");
     }
 
     @PutMapping("/password/{uuid}")
-    public ResponseEntity<String> updatePassword(
+    public CompletableFuture<ResponseEntity<String>> updatePassword(
             @RequestBody @Valid PasswordUpdateDto passwordUpdateDto,
             @PathVariable UUID uuid
             ) {
-        userUpdateService.updatePassword(passwordUpdateDto, uuid);
-        return ResponseEntity.status(HttpStatus.OK).body("Password updated");
+        return userUpdateService.updatePassword(passwordUpdateDto, uuid)
+                .thenApply(ignored -> ResponseEntity.status(HttpStatus.OK).body("Password updated"));
+    }
+
+    private static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // No If-Match or "*" puts no condition. Any of the listed tags may match; weak tags
+    // and tags that aren't one of our versions never do, so a list of only those is a 412
+    private static Set<Long> expectedVersions(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+
+        Set<Long> versions = new HashSet<>();
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return null;
+            }
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(tag.substring(1, tag.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // Not ours
+                }
+            }
+        }
+
+        if (versions.isEmpty()) {
+            throw new PreconditionFailedException();
+        }
+        return versions;
     }
 }
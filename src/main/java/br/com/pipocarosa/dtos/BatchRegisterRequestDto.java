@@ -0,0 +1,13 @@
+package br.com.pipocarosa.dtos;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchRegisterRequestDto(
+        @NotEmpty @Size(max = 500) List<@Valid UserRecordDto> users,
+        boolean issueTokens
+) {
+}
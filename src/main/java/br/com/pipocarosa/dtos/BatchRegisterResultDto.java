@@ -0,0 +1,29 @@
+package br.com.pipocarosa.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.UUID;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchRegisterResultDto(
+        String email,
+        Status status,
+        UUID uuid,
+        String jwt,
+        String message
+) {
+
+    public enum Status {
+        CREATED,
+        ALREADY_EXISTS,
+        REJECTED
+    }
+
+    public static BatchRegisterResultDto created(String email, UUID uuid, String jwt) {
+        return new BatchRegisterResultDto(email, Status.CREATED, uuid, jwt, null);
+    }
+
+    public static BatchRegisterResultDto failed(String email, Status status, String message) {
+        return new BatchRegisterResultDto(email, status, null, null, message);
+    }
+}
@@ -0,0 +1,9 @@
+package br.com.pipocarosa.dtos;
+
+import java.util.List;
+
+public record UserPageDto(
+        List<UserResponseDto> users,
+        Long nextCursor
+) {
+}
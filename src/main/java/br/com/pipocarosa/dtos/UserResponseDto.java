@@ -0,0 +1,13 @@
+package br.com.pipocarosa.dtos;
+
+import br.com.pipocarosa.models.UserModel;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+public record UserResponseDto(
+        String name,
+        String email,
+        @JsonFormat(pattern = UserModel.BIRTH_DATE_PATTERN) LocalDate birthDate
+) {
+}
@@ -0,0 +1,16 @@
+package br.com.pipocarosa.dtos;
+
+import java.time.LocalDate;
+
+// Row of a users page, the id is only used as the keyset cursor
+public record UserSummaryDto(
+        Long id,
+        String name,
+        String email,
+        LocalDate birthDate
+) {
+
+    public UserResponseDto toResponse() {
+        return new UserResponseDto(name, email, birthDate);
+    }
+}
@@ -0,0 +1,14 @@
+package br.com.pipocarosa.dtos;
+
+import java.time.LocalDate;
+
+// The body of GET /user/{uuid} and the version its ETag is made from
+public record VersionedUserResponseDto(
+        UserResponseDto user,
+        long version
+) {
+
+    public VersionedUserResponseDto(String name, String email, LocalDate birthDate, long version) {
+        this(new UserResponseDto(name, email, birthDate), version);
+    }
+}
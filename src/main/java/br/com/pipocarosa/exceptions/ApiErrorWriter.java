@@ -0,0 +1,105 @@
+package br.com.pipocarosa.exceptions;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Body of an error response, {"status":..,"timestamp":..,"message":..,"path":..}. Everything
+ * but the timestamp and the path is serialized once, when the writer is created, and the
+ * timestamp at most once a second for all writers, so a response copies a few arrays.
+ */
+public final class ApiErrorWriter {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy hh:mm:ss");
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private static volatile Timestamp timestamp = new Timestamp(Long.MIN_VALUE, null);
+
+    private record Timestamp(long epochSecond, byte[] bytes) {
+    }
+
+    private final HttpStatus status;
+
+    // Up to the timestamp, and from it up to the path
+    private final byte[] head;
+    private final byte[] middle;
+
+    public ApiErrorWriter(HttpStatus status, String message) {
+        this.status = status;
+        this.head = ("{\"status\":\"" + status.name() + "\",\"timestamp\":\"").getBytes(StandardCharsets.UTF_8);
+        this.middle = concat(
+                "\",\"message\":".getBytes(StandardCharsets.UTF_8),
+                quote(message),
+                ",\"path\":".getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public byte[] write(String path) {
+        byte[] time = currentTimestamp();
+        byte[] escapedPath = path == null ? null : JsonStringEncoder.getInstance().quoteAsUTF8(path);
+        int pathLength = escapedPath == null ? NULL.length : escapedPath.length + 2;
+
+        byte[] body = new byte[head.length + time.length + middle.length + pathLength + 1];
+        int offset = put(body, 0, head);
+        offset = put(body, offset, time);
+        offset = put(body, offset, middle);
+        if (escapedPath == null) {
+            offset = put(body, offset, NULL);
+        } else {
+            body[offset++] = '"';
+            offset = put(body, offset, escapedPath);
+            body[offset++] = '"';
+        }
+        body[offset] = '}';
+        return body;
+    }
+
+    private static byte[] currentTimestamp() {
+        long epochSecond = System.currentTimeMillis() / 1000;
+        Timestamp current = timestamp;
+
+        if (current.epochSecond() != epochSecond) {
+            LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault());
+            current = new Timestamp(epochSecond, TIMESTAMP_FORMAT.format(now).getBytes(StandardCharsets.US_ASCII));
+            timestamp = current;
+        }
+        return current.bytes();
+    }
+
+    private static byte[] quote(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        return concat(new byte[] {'"'}, JsonStringEncoder.getInstance().quoteAsUTF8(value), new byte[] {'"'});
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] part : parts) {
+            offset = put(result, offset, part);
+        }
+        return result;
+    }
+
+    private static int put(byte[] target, int offset, byte[] part) {
+        System.arraycopy(part, 0, target, offset, part.length);
+        return offset + part.length;
+    }
+}
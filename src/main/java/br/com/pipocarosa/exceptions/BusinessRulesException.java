@@ -1,7 +1,10 @@
 package br.com.pipocarosa.exceptions;
 
 public class BusinessRulesException extends RuntimeException {
+
+    static final String MESSAGE = "Error in Business Rules";
+
     public BusinessRulesException() {
-        super("Error in Business Rules");
+        super(MESSAGE, null, false, false);
     }
 }
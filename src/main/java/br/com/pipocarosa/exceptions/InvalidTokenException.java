@@ -2,7 +2,9 @@ package br.com.pipocarosa.exceptions;
 
 public class InvalidTokenException extends RuntimeException {
 
+    static final String MESSAGE = "Invalid token";
+
     public InvalidTokenException() {
-        super("Invalid token");
+        super(MESSAGE, null, false, false);
     }
 }
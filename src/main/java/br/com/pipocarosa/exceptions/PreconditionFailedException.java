@@ -0,0 +1,10 @@
+package br.com.pipocarosa.exceptions;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    static final String MESSAGE = "User changed since it was read";
+
+    public PreconditionFailedException() {
+        super(MESSAGE, null, false, false);
+    }
+}
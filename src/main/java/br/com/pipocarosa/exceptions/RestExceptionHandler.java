@@ -1,62 +1,148 @@
 package br.com.pipocarosa.exceptions;
 
-import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
-import org.apache.coyote.Response;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Answers with bodies from {@link ApiErrorWriter}. The expected errors, which scanners and
+ * retrying clients can produce in bulk, have a fixed message and are written from templates;
+ * their exceptions are created without a stack trace.
+ */
 @ControllerAdvice
 public class RestExceptionHandler {
 
-    private ResponseEntity<Object> buildResponseEntity(ApiError apiError) {
-        return new ResponseEntity<>(apiError, apiError.getStatus());
+    private static final ApiErrorWriter BUSINESS_RULES =
+            new ApiErrorWriter(HttpStatus.BAD_REQUEST, BusinessRulesException.MESSAGE);
+    private static final ApiErrorWriter USER_NOT_FOUND =
+            new ApiErrorWriter(HttpStatus.NOT_FOUND, UserNotFoundException.MESSAGE);
+    private static final ApiErrorWriter USER_ALREADY_EXISTS =
+            new ApiErrorWriter(HttpStatus.CONFLICT, UserAlreadyExistsException.MESSAGE);
+    private static final ApiErrorWriter PRECONDITION_FAILED =
+            new ApiErrorWriter(HttpStatus.PRECONDITION_FAILED, PreconditionFailedException.MESSAGE);
+    private static final ApiErrorWriter INVALID_DATA_FORMAT =
+            new ApiErrorWriter(HttpStatus.BAD_REQUEST, "Invalid data format");
+    private static final ApiErrorWriter INVALID_TOKEN =
+            new ApiErrorWriter(HttpStatus.BAD_REQUEST, InvalidTokenException.MESSAGE);
+    private static final ApiErrorWriter INVALID_UUID_FORMAT =
+            new ApiErrorWriter(HttpStatus.BAD_REQUEST, "Invalid uuid format");
+    private static final ApiErrorWriter NO_SUCH_RESOURCE =
+            new ApiErrorWriter(HttpStatus.NOT_FOUND, "Not found");
+    private static final ApiErrorWriter SERVER_BUSY =
+            new ApiErrorWriter(HttpStatus.SERVICE_UNAVAILABLE, "Server busy, try again later");
+    private static final ApiErrorWriter TOO_MANY_REQUESTS =
+            new ApiErrorWriter(HttpStatus.TOO_MANY_REQUESTS, TooManyRequestsException.MESSAGE);
+
+    @Value("${security.password.hashing.retry-after-seconds}")
+    private long retryAfterSeconds;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Each exception type is always answered with the same status
+    private final Map<Class<?>, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    private ResponseEntity<Object> buildResponseEntity(ApiErrorWriter writer, Exception ex, HttpServletRequest request) {
+        return errorResponse(writer, ex).body(writer.write(request.getRequestURI()));
+    }
+
+    private ResponseEntity.BodyBuilder errorResponse(ApiErrorWriter writer, Exception ex) {
+        countError(writer.getStatus(), ex);
+        return ResponseEntity.status(writer.getStatus()).contentType(MediaType.APPLICATION_JSON);
+    }
+
+    // One series per exception type and status, a handful of each
+    private void countError(HttpStatus status, Exception ex) {
+        errorCounters.computeIfAbsent(ex.getClass(), type -> Counter.builder("api.errors")
+                .description("Requests answered with an error, by exception type")
+                .tag("exception", type.getSimpleName())
+                .tag("status", String.valueOf(status.value()))
+                .register(meterRegistry)
+        ).increment();
     }
 
     @ExceptionHandler(BusinessRulesException.class)
     public final ResponseEntity<Object> handleYoungerEmail(BusinessRulesException ex, HttpServletRequest request) {
-        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST, ex.getMessage(), request.getRequestURI());
-        return buildResponseEntity(apiError);
+        return buildResponseEntity(BUSINESS_RULES, ex, request);
     }
 
     @ExceptionHandler(UserNotFoundException.class)
     public ResponseEntity<Object> handleUserNotFoundException(UserNotFoundException ex, HttpServletRequest request) {
-        ApiError apiError = new ApiError(HttpStatus.NOT_FOUND, ex.getMessage(), request.getRequestURI());
-        return buildResponseEntity(apiError);
+        return buildResponseEntity(USER_NOT_FOUND, ex, request);
     }
 
     @ExceptionHandler(UserAlreadyExistsException.class)
     public ResponseEntity<Object> handleUserAlreadyExists(UserAlreadyExistsException ex, HttpServletRequest request) {
-        ApiError apiError = new ApiError(HttpStatus.CONFLICT, ex.getMessage(), request.getRequestURI());
-        return buildResponseEntity(apiError);
+        return buildResponseEntity(USER_ALREADY_EXISTS, ex, request);
+    }
+
+    // If-Match on a user that was updated meanwhile
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Object> handlePreconditionFailed(PreconditionFailedException ex, HttpServletRequest request) {
+        return buildResponseEntity(PRECONDITION_FAILED, ex, request);
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Object> handleValidationExceptions(MethodArgumentNotValidException ex, HttpServletRequest request) {
-        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST, "Invalid data format", request.getRequestURI());
-        return buildResponseEntity(apiError);
+        return buildResponseEntity(INVALID_DATA_FORMAT, ex, request);
+    }
+
+    // Malformed, expired or wrongly signed bearer tokens, passed on by JwtAuthenticationFilter
+    @ExceptionHandler(JwtException.class)
+    public ResponseEntity<Object> handleJwtException(JwtException ex, HttpServletRequest request) {
+        return buildResponseEntity(INVALID_TOKEN, ex, request);
     }
 
-    // It's not working
-    @ExceptionHandler(MalformedJwtException.class)
-    public ResponseEntity<Object> handleMalformedJwtException(MalformedJwtException ex, HttpServletRequest request) {
-        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST, "Invalid token", request.getRequestURI());
-        return buildResponseEntity(apiError);
+    @ExceptionHandler(InvalidTokenException.class)
+    public ResponseEntity<Object> handleInvalidToken(InvalidTokenException ex, HttpServletRequest request) {
+        return buildResponseEntity(INVALID_TOKEN, ex, request);
     }
 
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
     public ResponseEntity<Object> handleTypeMismatch(MethodArgumentTypeMismatchException ex, HttpServletRequest request) {
-        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST, "Invalid uuid format", request.getRequestURI());
-        return buildResponseEntity(apiError);
+        return buildResponseEntity(INVALID_UUID_FORMAT, ex, request);
+    }
+
+    // A permitted path nothing is mapped to, such as actuator endpoints on the application port
+    @ExceptionHandler(NoResourceFoundException.class)
+    public ResponseEntity<Object> handleNoResourceFound(NoResourceFoundException ex, HttpServletRequest request) {
+        return buildResponseEntity(NO_SUCH_RESOURCE, ex, request);
+    }
+
+    // Password hashing pool is saturated, clients should back off instead of queueing
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Object> handleRejectedExecution(RejectedExecutionException ex, HttpServletRequest request) {
+        return errorResponse(SERVER_BUSY, ex)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(SERVER_BUSY.write(request.getRequestURI()));
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Object> handleTooManyRequests(TooManyRequestsException ex, HttpServletRequest request) {
+        return errorResponse(TOO_MANY_REQUESTS, ex)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(TOO_MANY_REQUESTS.write(request.getRequestURI()));
     }
 
+    // Unexpected, so its message isn't known in advance
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleGenericExceptions(Exception ex, HttpServletRequest request) {
-        ApiError apiError = new ApiError(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage(), request.getRequestURI());
-        return buildResponseEntity(apiError);
+        return buildResponseEntity(new ApiErrorWriter(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage()), ex, request);
     }
 }
@@ -0,0 +1,17 @@
+package br.com.pipocarosa.exceptions;
+
+public class TooManyRequestsException extends RuntimeException {
+
+    static final String MESSAGE = "Too many requests, try again later";
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(long retryAfterSeconds) {
+        super(MESSAGE, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
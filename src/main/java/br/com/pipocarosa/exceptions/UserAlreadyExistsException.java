@@ -2,7 +2,9 @@ package br.com.pipocarosa.exceptions;
 
 public class UserAlreadyExistsException extends RuntimeException {
 
+    static final String MESSAGE = "User already exists";
+
     public UserAlreadyExistsException() {
-        super("User already exists");
+        super(MESSAGE, null, false, false);
     }
 }
@@ -2,7 +2,9 @@ package br.com.pipocarosa.exceptions;
 
 public class UserNotFoundException extends RuntimeException {
 
+    static final String MESSAGE = "User not found";
+
     public UserNotFoundException() {
-        super("User not found");
+        super(MESSAGE, null, false, false);
     }
 }
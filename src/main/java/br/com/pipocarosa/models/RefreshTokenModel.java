@@ -0,0 +1,77 @@
+package br.com.pipocarosa.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Only the SHA-256 of the token is stored; the token itself is random, so a fast hash is enough
+@Entity(name = "REFRESH_TOKENS")
+@Table(indexes = {
+        @Index(name = "refresh_tokens_family_idx", columnList = "family_id"),
+        @Index(name = "refresh_tokens_user_idx", columnList = "user_id")
+})
+public class RefreshTokenModel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false, unique = true, length = 32)
+    private byte[] tokenHash;
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private UserModel user;
+    // Every token rotated from the same login, revoked together when one is reused
+    @Column(nullable = false)
+    private UUID familyId;
+    // User's token generation when issued, a newer one invalidates the token like it does access tokens
+    @Column(nullable = false)
+    private int tokenGeneration;
+    @Column(nullable = false)
+    private Instant expiresAt;
+    // Set when the token is exchanged; presenting it again afterwards is a reuse
+    private Instant rotatedAt;
+
+    public RefreshTokenModel(byte[] tokenHash, UserModel user, UUID familyId, int tokenGeneration, Instant expiresAt) {
+        this.tokenHash = tokenHash;
+        this.user = user;
+        this.familyId = familyId;
+        this.tokenGeneration = tokenGeneration;
+        this.expiresAt = expiresAt;
+    }
+
+    public RefreshTokenModel() {
+
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public byte[] getTokenHash() {
+        return tokenHash;
+    }
+
+    public UserModel getUser() {
+        return user;
+    }
+
+    public UUID getFamilyId() {
+        return familyId;
+    }
+
+    public int getTokenGeneration() {
+        return tokenGeneration;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public Instant getRotatedAt() {
+        return rotatedAt;
+    }
+}
@@ -0,0 +1,51 @@
+package br.com.pipocarosa.models;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Either a single token by its jti, or every token of a user issued before revokedAt
+@Entity(name = "REVOKED_TOKENS")
+@Table(indexes = {
+        @Index(name = "revoked_tokens_revoked_at_idx", columnList = "revoked_at"),
+        @Index(name = "revoked_tokens_expires_at_idx", columnList = "expires_at")
+})
+public class RevokedTokenModel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(unique = true)
+    private UUID jti;
+    private UUID userUuid;
+    // Nothing revoked by this row is still valid afterwards, the row can go
+    @Column(nullable = false)
+    private Instant expiresAt;
+    @Column(nullable = false)
+    private Instant revokedAt;
+
+    public RevokedTokenModel() {
+
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public UUID getJti() {
+        return jti;
+    }
+
+    public UUID getUserUuid() {
+        return userUuid;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public Instant getRevokedAt() {
+        return revokedAt;
+    }
+}
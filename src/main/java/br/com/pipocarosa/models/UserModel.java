@@ -1,5 +1,7 @@
 package br.com.pipocarosa.models;
+import br.com.pipocarosa.config.UserCacheConfiguration;
 import br.com.pipocarosa.models.enums.Role;
+import br.com.pipocarosa.repositories.UserLookupCacheListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -7,45 +9,75 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Generated;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
 import java.util.Collection;
-import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Entity(name = "USERS")
+@Cacheable
+@EntityListeners(UserLookupCacheListener.class)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = UserCacheConfiguration.USERS_REGION)
+@NaturalIdCache(region = UserCacheConfiguration.USERS_BY_UUID_REGION)
+@Table(
+        uniqueConstraints = @UniqueConstraint(name = UserModel.UNIQUE_EMAIL_CONSTRAINT, columnNames = "email"),
+        // Age and birth date queries are range scans on this index, already in result order
+        indexes = @Index(name = "users_birth_date_idx", columnList = "birth_date, id")
+)
 public class UserModel implements Serializable, UserDetails {
     private static final long serialVersionUID = 1L;
 
+    public static final String UNIQUE_EMAIL_CONSTRAINT = "user_unique_email";
+
+    // Format birth dates are received and returned in by the API
+    public static final String BIRTH_DATE_PATTERN = "dd/MM/yyyy";
+    public static final DateTimeFormatter BIRTH_DATE_FORMATTER =
+            DateTimeFormatter.ofPattern("dd/MM/uuuu").withResolverStyle(ResolverStyle.STRICT);
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    // Registration inserts natively with nextval('users_seq'), so the sequence steps by one, as ids are used
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 1)
     @Column(unique = true)
     private Long id;
+    @NaturalId
     @Column(unique = true, nullable = false)
     private UUID uuid;
     @Column(nullable = false)
     private String name;
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String email;
     @Column(nullable = false)
-    private String birthDate;
+    private LocalDate birthDate;
     @Column(nullable = false)
     private String password;
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
     private Role role;
+    // Tokens carry the generation they were issued with; bumping it invalidates them all
+    @Column(nullable = false)
+    private int tokenGeneration;
+    // Optimistic lock, also the user's ETag; bulk updates bump it themselves
+    @Version
+    @Column(nullable = false)
+    private long version;
 
     public UserModel(Long id, String name, String email, String birthDate){
         this.id = id;
         this.uuid = UUID.randomUUID();
         this.name = name;
         this.email = email;
-        this.birthDate = birthDate;
+        this.birthDate = LocalDate.parse(birthDate, BIRTH_DATE_FORMATTER);
         this.role = Role.USER;
     }
 
@@ -81,11 +113,11 @@ public class UserModel implements Serializable, UserDetails {
         this.email = email;
     }
 
-    public String getBirthDate() {
+    public LocalDate getBirthDate() {
         return birthDate;
     }
 
-    public void setBirthDate(String birthDate) {
+    public void setBirthDate(LocalDate birthDate) {
         this.birthDate = birthDate;
     }
 
@@ -102,17 +134,27 @@ public class UserModel implements Serializable, UserDetails {
     }
 
     public void setRole(Role role) {
+        if (this.role != null && this.role != role) {
+            tokenGeneration++;
+        }
         this.role = role;
     }
-    @Override
-    public Collection<? extends GrantedAuthority> getAuthorities() {
-        List<GrantedAuthority> authorities = role.getPermissions().stream().map(
-                permissionEnum -> new SimpleGrantedAuthority(permissionEnum.name())
-        ).collect(Collectors.toList());
 
-        authorities.add(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    public int getTokenGeneration() {
+        return tokenGeneration;
+    }
+
+    public void setTokenGeneration(int tokenGeneration) {
+        this.tokenGeneration = tokenGeneration;
+    }
+
+    public long getVersion() {
+        return version;
+    }
 
-        return authorities;
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return role.getAuthorities();
     }
 
     @Override
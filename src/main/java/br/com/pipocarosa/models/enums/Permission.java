@@ -1,7 +1,32 @@
 package br.com.pipocarosa.models.enums;
 
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
 public enum Permission {
 
     READ_PERSONAL_DATA,
     READ_ALL_DATA;
-}
+
+    private static final Permission[] PERMISSIONS = values();
+
+    private final long mask = 1L << ordinal();
+
+    public long mask() {
+        return mask;
+    }
+
+    // Bits of the permissions among these authorities; other authorities are ignored
+    public static long maskOf(Collection<? extends GrantedAuthority> authorities) {
+        long mask = 0;
+        for (GrantedAuthority authority : authorities) {
+            for (Permission permission : PERMISSIONS) {
+                if (permission.name().equals(authority.getAuthority())) {
+                    mask |= permission.mask;
+                }
+            }
+        }
+        return mask;
+    }
+}
\ No newline at end of file
@@ -1,25 +1,82 @@
 package br.com.pipocarosa.models.enums;
 
-import java.util.Arrays;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
+// Everything derived from the permissions is built once, when the enum is initialized
 public enum Role {
 
-    USER(List.of(Permission.READ_PERSONAL_DATA)),
+    USER(EnumSet.of(Permission.READ_PERSONAL_DATA)),
+
+    ADMIN(EnumSet.of(Permission.READ_ALL_DATA, Permission.READ_PERSONAL_DATA));
+
+    public static final String ROLE_PREFIX = "ROLE_";
+
+    private static final Role[] ROLES = values();
 
-    ADMIN(Arrays.asList(Permission.READ_ALL_DATA, Permission.READ_PERSONAL_DATA));
+    private final Set<Permission> permissions;
+    private final long permissionMask;
+    private final long mask = 1L << ordinal();
+    private final String authority = ROLE_PREFIX + name();
+    private final List<String> permissionNames;
+    private final List<GrantedAuthority> authorities;
 
-    private List<Permission> permissions;
+    Role(EnumSet<Permission> permissions) {
+        this.permissions = Collections.unmodifiableSet(permissions);
 
-    Role(List<Permission> permissions) {
-        this.permissions = permissions;
+        long permissionMask = 0;
+        List<String> permissionNames = new ArrayList<>();
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (Permission permission : permissions) {
+            permissionMask |= permission.mask();
+            permissionNames.add(permission.name());
+            authorities.add(new SimpleGrantedAuthority(permission.name()));
+        }
+        authorities.add(new SimpleGrantedAuthority(authority));
+
+        this.permissionMask = permissionMask;
+        this.permissionNames = List.copyOf(permissionNames);
+        this.authorities = List.copyOf(authorities);
     }
 
-    public List<Permission> getPermissions() {
+    public Set<Permission> getPermissions() {
         return permissions;
     }
 
-    public void setPermissions(List<Permission> permissions) {
-        this.permissions = permissions;
+    public long getPermissionMask() {
+        return permissionMask;
+    }
+
+    public long mask() {
+        return mask;
+    }
+
+    public List<String> getPermissionNames() {
+        return permissionNames;
+    }
+
+    // Permissions followed by the ROLE_ authority, shared by every user with this role
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    // Bits of the roles among these authorities; other authorities are ignored
+    public static long maskOf(Collection<? extends GrantedAuthority> authorities) {
+        long mask = 0;
+        for (GrantedAuthority authority : authorities) {
+            for (Role role : ROLES) {
+                if (role.authority.equals(authority.getAuthority())) {
+                    mask |= role.mask;
+                }
+            }
+        }
+        return mask;
     }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package br.com.pipocarosa.repositories;
+
+import br.com.pipocarosa.models.RefreshTokenModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshTokenModel, Long> {
+
+    interface RotatedToken {
+        Long getUserId();
+
+        UUID getFamilyId();
+
+        int getTokenGeneration();
+    }
+
+    // Marks the token as used in the same statement that finds it by its unique hash, so of two
+    // concurrent exchanges of one token only the first gets a row back
+    @Query(value = "UPDATE refresh_tokens SET rotated_at = now() " +
+            "WHERE token_hash = :tokenHash AND rotated_at IS NULL AND expires_at > now() " +
+            "RETURNING user_id AS \"userId\", family_id AS \"familyId\", token_generation AS \"tokenGeneration\"",
+            nativeQuery = true)
+    Optional<RotatedToken> rotate(byte[] tokenHash);
+
+    @Query("select t.familyId from REFRESH_TOKENS t where t.tokenHash = :tokenHash")
+    Optional<UUID> findFamilyIdByTokenHash(byte[] tokenHash);
+
+    @Query("select t.familyId from REFRESH_TOKENS t where t.tokenHash = :tokenHash and t.rotatedAt is not null")
+    Optional<UUID> findRotatedFamilyIdByTokenHash(byte[] tokenHash);
+
+    @Modifying
+    @Query("delete from REFRESH_TOKENS t where t.familyId = :familyId")
+    int deleteByFamilyId(UUID familyId);
+
+    // Expired tokens, rotated ones included, can't be exchanged or reused anymore
+    @Modifying
+    @Query("delete from REFRESH_TOKENS t where t.user.id = :userId and t.expiresAt < :now")
+    int deleteExpired(Long userId, Instant now);
+}
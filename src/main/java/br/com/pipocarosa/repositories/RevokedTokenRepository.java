@@ -0,0 +1,46 @@
+package br.com.pipocarosa.repositories;
+
+import br.com.pipocarosa.models.RevokedTokenModel;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedTokenModel, Long> {
+
+    // The inserts name the one table they write: without it Hibernate assumes a native statement may have
+    // changed anything and clears every cache region, the users' included
+
+    // Revoking an already revoked token (a repeated logout) changes nothing
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "revoked_tokens"))
+    @Query(value = "INSERT INTO revoked_tokens (jti, expires_at, revoked_at) VALUES (:jti, :expiresAt, now()) " +
+            "ON CONFLICT (jti) DO NOTHING", nativeQuery = true)
+    int insertToken(UUID jti, Instant expiresAt);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "revoked_tokens"))
+    @Query(value = "INSERT INTO revoked_tokens (user_uuid, expires_at, revoked_at) VALUES (:userUuid, :expiresAt, now())",
+            nativeQuery = true)
+    int insertUser(UUID userUuid, Instant expiresAt);
+
+    // Rows are stamped with the database clock, which is also what the caller's cursor comes from
+    @Query("select t from REVOKED_TOKENS t where t.revokedAt > :since and t.expiresAt > :now order by t.revokedAt")
+    List<RevokedTokenModel> findRevokedSince(Instant since, Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from REVOKED_TOKENS t where t.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
@@ -0,0 +1,12 @@
+package br.com.pipocarosa.repositories;
+
+import br.com.pipocarosa.models.UserModel;
+
+import java.util.List;
+import java.util.Map;
+
+public interface UserBatchRepository {
+
+    // Ids of the inserted users by email, users whose email was already taken are left out
+    Map<String, Long> insertAllIfEmailAbsent(List<UserModel> users);
+}
@@ -0,0 +1,64 @@
+package br.com.pipocarosa.repositories;
+
+import br.com.pipocarosa.models.UserModel;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Batch registration as one statement: the rows are bound as one array per column and
+ * unnested, so the SQL text is the same whatever the batch size. As with a single
+ * registration, the unique email constraint decides and duplicates return no row.
+ */
+public class UserBatchRepositoryImpl implements UserBatchRepository {
+
+    private static final String INSERT_ALL_IF_EMAIL_ABSENT =
+            "INSERT INTO users (id, uuid, name, email, birth_date, password, role, token_generation, version) " +
+            "SELECT nextval('users_seq'), u.uuid, u.name, u.email, u.birth_date, u.password, u.role, 0, 0 " +
+            "FROM unnest(?, ?, ?, ?, ?, ?) AS u(uuid, name, email, birth_date, password, role) " +
+            "ON CONFLICT (email) DO NOTHING RETURNING email, id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public Map<String, Long> insertAllIfEmailAbsent(List<UserModel> users) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_ALL_IF_EMAIL_ABSENT)) {
+                statement.setArray(1, column(connection, "uuid", users, UserModel::getUuid));
+                statement.setArray(2, column(connection, "varchar", users, UserModel::getName));
+                statement.setArray(3, column(connection, "varchar", users, UserModel::getEmail));
+                statement.setArray(4, column(connection, "date", users, user -> Date.valueOf(user.getBirthDate())));
+                statement.setArray(5, column(connection, "varchar", users, UserModel::getPassword));
+                statement.setArray(6, column(connection, "varchar", users, user -> user.getRole().name()));
+
+                Map<String, Long> ids = new HashMap<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        ids.put(resultSet.getString(1), resultSet.getLong(2));
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+
+    private static Array column(
+            Connection connection, String type, List<UserModel> users, Function<UserModel, Object> value
+    ) throws SQLException {
+        return connection.createArrayOf(type, users.stream().map(value).toArray());
+    }
+}
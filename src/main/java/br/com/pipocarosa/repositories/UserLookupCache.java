@@ -0,0 +1,83 @@
+package br.com.pipocarosa.repositories;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Index from a user's uuid or email to its id. Misses are kept too, for a shorter time,
+ * so repeated lookups of an unknown key don't reach the database either.
+ */
+@Component
+public class UserLookupCache {
+
+    private final boolean enabled;
+
+    private final Cache<Object, Optional<Long>> ids;
+
+    public UserLookupCache(
+            @Value("${users.cache.enabled}") boolean enabled,
+            @Value("${users.cache.max-size}") long maxSize,
+            @Value("${users.cache.ttl-seconds}") long ttlSeconds,
+            @Value("${users.cache.negative-ttl-seconds}") long negativeTtlSeconds,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.ids = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new LookupExpiry(
+                        TimeUnit.SECONDS.toNanos(ttlSeconds), TimeUnit.SECONDS.toNanos(negativeTtlSeconds)
+                ))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, ids, "users.lookup");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Concurrent misses on the same key wait for a single load
+    public Optional<Long> get(Object key, Supplier<Optional<Long>> loader) {
+        return ids.get(key, ignored -> loader.get());
+    }
+
+    public Optional<Long> getIfPresent(Object key) {
+        return ids.getIfPresent(key);
+    }
+
+    public void put(Object key, Optional<Long> id) {
+        ids.put(key, id);
+    }
+
+    public void invalidate(Object key) {
+        ids.invalidate(key);
+    }
+
+    private record LookupExpiry(long ttlNanos, long negativeTtlNanos) implements Expiry<Object, Optional<Long>> {
+
+        @Override
+        public long expireAfterCreate(Object key, Optional<Long> id, long currentTime) {
+            return id.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Optional<Long> id, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, id, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Optional<Long> id, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package br.com.pipocarosa.repositories;
+
+import br.com.pipocarosa.models.UserModel;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Keeps {@link UserLookupCache} in line with users written through JPA: a new user
+ * replaces a cached miss, a removed one stops resolving to its old id.
+ */
+public class UserLookupCacheListener {
+
+    @Autowired
+    private UserLookupCache userLookupCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void evict(UserModel user) {
+        userLookupCache.invalidate(user.getUuid());
+        userLookupCache.invalidate(user.getEmail());
+    }
+}
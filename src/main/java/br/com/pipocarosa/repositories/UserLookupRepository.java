@@ -0,0 +1,19 @@
+package br.com.pipocarosa.repositories;
+
+import br.com.pipocarosa.models.UserModel;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface UserLookupRepository {
+
+    Optional<UserModel> findByUuid(UUID uuid);
+
+    Optional<UserModel> findByEmail(String email);
+
+    void evictCached(UUID uuid);
+
+    void evictCached(UUID uuid, Long id);
+
+    void evictCached(String email);
+}
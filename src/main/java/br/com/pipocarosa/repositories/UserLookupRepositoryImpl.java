@@ -0,0 +1,113 @@
+package br.com.pipocarosa.repositories;
+
+import br.com.pipocarosa.models.UserModel;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cached lookups by uuid (the entity's natural id) and by email.
+ *
+ * Each key is resolved to the user's id once through {@link UserLookupCache}; the user
+ * itself is then read by id, which the second-level cache answers without going to the
+ * database.
+ */
+public class UserLookupRepositoryImpl implements UserLookupRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserLookupCache userLookupCache;
+
+    @Override
+    public Optional<UserModel> findByUuid(UUID uuid) {
+        return inSession(session -> find(session, uuid, user -> uuid.equals(user.getUuid()),
+                () -> session.bySimpleNaturalId(UserModel.class).loadOptional(uuid)));
+    }
+
+    @Override
+    public Optional<UserModel> findByEmail(String email) {
+        return inSession(session -> find(session, email, user -> email.equals(user.getEmail()),
+                () -> session.createSelectionQuery("from USERS u where u.email = :email", UserModel.class)
+                        .setParameter("email", email)
+                        .uniqueResultOptional()));
+    }
+
+    @Override
+    public void evictCached(UUID uuid) {
+        Optional<Long> id = userLookupCache.getIfPresent(uuid);
+        userLookupCache.invalidate(uuid);
+
+        if (id != null && id.isPresent()) {
+            sessionFactory().getCache().evictEntityData(UserModel.class, id.get());
+        }
+    }
+
+    // Only the one entry goes; the uuid's natural id entry can stay, uuids never change and ids aren't reused
+    @Override
+    public void evictCached(UUID uuid, Long id) {
+        userLookupCache.invalidate(uuid);
+        sessionFactory().getCache().evictEntityData(UserModel.class, id);
+    }
+
+    @Override
+    public void evictCached(String email) {
+        userLookupCache.invalidate(email);
+    }
+
+    private Optional<UserModel> find(
+            Session session, Object key, Predicate<UserModel> matches, Supplier<Optional<UserModel>> query
+    ) {
+        if (!userLookupCache.isEnabled()) {
+            return query.get();
+        }
+
+        Optional<Long> id = userLookupCache.get(key, () -> query.get().map(UserModel::getId));
+
+        if (id.isEmpty()) {
+            return Optional.empty();
+        }
+
+        UserModel user = session.find(UserModel.class, id.get());
+
+        if (user != null && matches.test(user)) {
+            return Optional.of(user);
+        }
+
+        // Deleted since it was indexed, or the key now belongs to another row
+        Optional<UserModel> reloaded = query.get();
+        userLookupCache.put(key, reloaded.map(UserModel::getId));
+        return reloaded;
+    }
+
+    private <T> T inSession(Function<Session, T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.apply(entityManager.unwrap(Session.class));
+        }
+
+        // Outside a transaction a read-only session is enough, it only takes a connection on a cache miss
+        try (Session session = sessionFactory().openSession()) {
+            session.setDefaultReadOnly(true);
+            return work.apply(session);
+        }
+    }
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+}
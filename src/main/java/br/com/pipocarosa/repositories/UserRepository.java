@@ -1,17 +1,102 @@
 package br.com.pipocarosa.repositories;
 
+import br.com.pipocarosa.dtos.UserResponseDto;
+import br.com.pipocarosa.dtos.UserSummaryDto;
+import br.com.pipocarosa.dtos.VersionedUserResponseDto;
 import br.com.pipocarosa.models.UserModel;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<UserModel, Long> {
+public interface UserRepository extends JpaRepository<UserModel, Long>, UserLookupRepository, UserBatchRepository {
     boolean existsByEmail(String email);
-    Optional<UserModel> findByEmail(String email);
 
-    Optional<UserModel> findByUuid(UUID uuid);
+    // Single round trip registration: the unique email constraint decides, no row comes back for a duplicate
+    @Transactional
+    @Query(value = "INSERT INTO users (id, uuid, name, email, birth_date, password, role, token_generation, version) " +
+            "VALUES (nextval('users_seq'), :uuid, :name, :email, :birthDate, :password, :role, 0, 0) " +
+            "ON CONFLICT (email) DO NOTHING RETURNING id", nativeQuery = true)
+    Optional<Long> insertIfEmailAbsent(
+            UUID uuid, String name, String email, LocalDate birthDate, String password, String role
+    );
+
+    @Query("select u.email from USERS u where u.email in :emails")
+    Set<String> findExistingEmails(Collection<String> emails);
+
+    // Mutations by uuid run as a single statement returning the user's id, empty when there's no such user.
+    // Each one bumps the version, but for a rehash on login, which clients can't tell happened.
+    // They're native and run as queries, so Hibernate doesn't clear the whole user cache as it does after
+    // a bulk update; callers evict the one user by the returned id
+
+    @Transactional
+    @Query(value = "UPDATE users SET password = :password WHERE uuid = :uuid RETURNING id", nativeQuery = true)
+    Optional<Long> updatePassword(UUID uuid, String password);
+
+    // Unlike a rehash on login, a new password also invalidates every token issued with the old one
+    @Transactional
+    @Query(value = "UPDATE users SET password = :password, token_generation = token_generation + 1, " +
+            "version = version + 1 WHERE uuid = :uuid RETURNING id", nativeQuery = true)
+    Optional<Long> changePassword(UUID uuid, String password);
+
+    // Rows already holding these values aren't matched, so no-op updates write nothing
+    @Transactional
+    @Query(value = "UPDATE users SET name = :name, birth_date = :birthDate, version = version + 1 " +
+            "WHERE uuid = :uuid AND (name <> :name OR birth_date <> :birthDate) RETURNING id", nativeQuery = true)
+    Optional<Long> updateProfile(UUID uuid, String name, LocalDate birthDate);
+
+    // Same, and a row changed since the client read it isn't matched either
+    @Transactional
+    @Query(value = "UPDATE users SET name = :name, birth_date = :birthDate, version = version + 1 " +
+            "WHERE uuid = :uuid AND version IN (:expectedVersions) " +
+            "AND (name <> :name OR birth_date <> :birthDate) RETURNING id", nativeQuery = true)
+    Optional<Long> updateProfile(UUID uuid, String name, LocalDate birthDate, Collection<Long> expectedVersions);
+
+    @Transactional
+    @Query(value = "DELETE FROM users WHERE uuid = :uuid RETURNING id", nativeQuery = true)
+    Optional<Long> deleteByUuid(UUID uuid);
+
+    @Query("select u.tokenGeneration from USERS u where u.uuid = :uuid")
+    Optional<Integer> findTokenGenerationByUuid(UUID uuid);
+
+    @Query("select u.version from USERS u where u.uuid = :uuid")
+    Optional<Long> findVersionByUuid(UUID uuid);
+
+    // Read endpoints select only the columns they return, no entity is loaded or tracked
+
+    @Query("select new br.com.pipocarosa.dtos.VersionedUserResponseDto(u.name, u.email, u.birthDate, u.version) " +
+            "from USERS u where u.uuid = :uuid")
+    Optional<VersionedUserResponseDto> findVersionedResponseByUuid(UUID uuid);
+
+    List<UserSummaryDto> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Range scan on users_birth_date_idx, which already holds the rows in this order
+    @Query("select new br.com.pipocarosa.dtos.UserResponseDto(u.name, u.email, u.birthDate) " +
+            "from USERS u where u.birthDate between :from and :to order by u.birthDate, u.id")
+    List<UserResponseDto> findByBirthDateBetween(LocalDate from, LocalDate to, Limit limit);
+
+    // Read through a server-side cursor, so only one fetch of rows is held at a time
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new br.com.pipocarosa.dtos.UserResponseDto(u.name, u.email, u.birthDate) " +
+            "from USERS u order by u.id")
+    Stream<UserResponseDto> streamAllOrderedById();
+
+    // Planner statistics instead of count(*), which scans the whole table
+    @Query(value = "SELECT CAST(GREATEST(reltuples, 0) AS BIGINT) FROM pg_class WHERE oid = to_regclass('users')",
+            nativeQuery = true)
+    Optional<Long> estimateCount();
 
 }
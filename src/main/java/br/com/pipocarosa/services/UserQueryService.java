@@ -1,38 +1,153 @@
 package br.com.pipocarosa.services;
 
-import br.com.pipocarosa.dtos.UserRecordDto;
+import br.com.pipocarosa.dtos.UserPageDto;
+import br.com.pipocarosa.dtos.UserResponseDto;
+import br.com.pipocarosa.dtos.VersionedUserResponseDto;
+import br.com.pipocarosa.dtos.UserSummaryDto;
+import br.com.pipocarosa.exceptions.BusinessRulesException;
 import br.com.pipocarosa.exceptions.UserNotFoundException;
 import br.com.pipocarosa.models.UserModel;
 import br.com.pipocarosa.repositories.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 public class UserQueryService {
 
+    // Rows written between two flushes of the streamed response
+    private static final int STREAM_FLUSH_INTERVAL = 500;
+
+    // Lower bound of birth date searches without one
+    private static final LocalDate EARLIEST_BIRTH_DATE = LocalDate.of(1900, 1, 1);
+
+    // Larger ages can't match anyone and would overflow the birth date arithmetic
+    private static final int MAX_AGE = 150;
+
     @Autowired
     private UserRepository userRepository;
 
-    public UserRecordDto getOneUser(UUID uuid) {
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${users.page.max-limit}")
+    private int maxPageLimit;
 
-        Optional<UserModel> optionalUser = userRepository.findByUuid(uuid);
+    @Transactional(readOnly = true)
+    public VersionedUserResponseDto getOneUser(UUID uuid) {
+
+        Optional<VersionedUserResponseDto> optionalUser = userRepository.findVersionedResponseByUuid(uuid);
 
         if(optionalUser.isPresent()) {
-            UserModel user = optionalUser.get();
-            return new UserRecordDto(
-                    user.getName(),
-                    user.getEmail(),
-                    user.getBirthDate(),
-                    user.getPassword()
-            );
+            return optionalUser.get();
         } else {
             throw new UserNotFoundException();
         }
     }
 
+    // Enough to answer a conditional GET. Read from the database, a cached copy could be stale and answer 304 wrongly
+    @Transactional(readOnly = true)
+    public long getUserVersion(UUID uuid) {
+        return userRepository.findVersionByUuid(uuid).orElseThrow(UserNotFoundException::new);
+    }
+
+    @Transactional(readOnly = true)
+    public UserPageDto getUsersPage(Long after, int limit) {
+
+        int pageSize = Math.min(Math.max(limit, 1), maxPageLimit);
+
+        List<UserSummaryDto> users = userRepository.findByIdGreaterThanOrderByIdAsc(
+                after == null ? 0L : after, Limit.of(pageSize)
+        );
+
+        List<UserResponseDto> usersDto = users.stream()
+                .map(UserSummaryDto::toResponse)
+                .toList();
+
+        Long nextCursor = users.size() == pageSize ? users.get(users.size() - 1).id() : null;
+
+        return new UserPageDto(usersDto, nextCursor);
+    }
+
+    // Age bounds are turned into birth dates, so both kinds of filter become one birth date range
+    @Transactional(readOnly = true)
+    public List<UserResponseDto> findUsersByBirthDate(
+            LocalDate bornFrom, LocalDate bornTo, Integer minAge, Integer maxAge, int limit
+    ) {
+        if (!isValidAge(minAge) || !isValidAge(maxAge)) {
+            throw new BusinessRulesException();
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate from = bornFrom != null ? bornFrom : EARLIEST_BIRTH_DATE;
+        LocalDate to = bornTo != null ? bornTo : today;
+
+        if (minAge != null) {
+            to = min(to, today.minusYears(minAge));
+        }
+        if (maxAge != null) {
+            from = max(from, today.minusYears(maxAge + 1L).plusDays(1));
+        }
+
+        if (from.isAfter(to)) {
+            return List.of();
+        }
+
+        int pageSize = Math.min(Math.max(limit, 1), maxPageLimit);
+        return userRepository.findByBirthDateBetween(from, to, Limit.of(pageSize));
+    }
+
+    private static boolean isValidAge(Integer age) {
+        return age == null || (age >= 0 && age <= MAX_AGE);
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    // Writes one JSON document per line as rows arrive from the cursor
+    @Transactional(readOnly = true)
+    public void streamUsers(OutputStream outputStream) throws IOException {
+
+        try (Stream<UserResponseDto> users = userRepository.streamAllOrderedById();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+
+            Iterator<UserResponseDto> iterator = users.iterator();
+            int written = 0;
+
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+                generator.writeRaw('\n');
+
+                if (++written % STREAM_FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long estimateUserCount() {
+        return userRepository.estimateCount().orElse(0L);
+    }
+
     public Optional<UserModel> findUserByUuid(UUID uuid) {
         return userRepository.findByUuid(uuid);
     }
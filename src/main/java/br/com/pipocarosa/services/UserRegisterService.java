@@ -2,52 +2,104 @@ package br.com.pipocarosa.services;
 
 import br.com.pipocarosa.dtos.UserRecordDto;
 import br.com.pipocarosa.exceptions.BusinessRulesException;
-import br.com.pipocarosa.exceptions.UserAlreadyExistsException;
 import br.com.pipocarosa.models.UserModel;
-import br.com.pipocarosa.repositories.UserRepository;
 import org.springframework.beans.BeanUtils;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.time.Period;
-import java.time.format.DateTimeFormatter;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class UserRegisterService {
-    @Autowired
-    private UserRepository userRepository;
+    private static final int ADULT_AGE = 18;
+    private static final long INVALID_DATE = Long.MIN_VALUE;
 
+    // Latest birth date (as an epoch day) of someone who is an adult today, recomputed at midnight
+    private volatile AgeCutoff ageCutoff = new AgeCutoff(0, 0);
+
+    // Allocation free: the dd/MM/yyyy string is read digit by digit and compared as an epoch day
     public boolean checkAge(String date) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-        LocalDate birthDate = LocalDate.parse(date, formatter);
-        LocalDate currentDate = LocalDate.now();
-        Period interval = Period.between(birthDate, currentDate);
-        if(interval.getYears() > 18) {
-            return true;
-        } else if(interval.getYears() == 18) {
-            if(interval.getMonths() > 0) {
-                return true;
-            } else if(interval.getMonths() == 0) {
-                return interval.getDays() >= 0;
-            } else {
-                return false;
-            }
-        } else {
-            return false;
+        long birthDay = toEpochDay(date);
+        return birthDay != INVALID_DATE && birthDay <= currentAgeCutoff().latestAdultBirthDay();
+    }
+
+    private AgeCutoff currentAgeCutoff() {
+        AgeCutoff cutoff = ageCutoff;
+
+        if (System.currentTimeMillis() >= cutoff.validUntilMillis()) {
+            ZonedDateTime now = ZonedDateTime.now();
+            LocalDate today = now.toLocalDate();
+            cutoff = new AgeCutoff(
+                    today.minusYears(ADULT_AGE).toEpochDay(),
+                    today.plusDays(1).atStartOfDay(now.getZone()).toInstant().toEpochMilli()
+            );
+            ageCutoff = cutoff;
         }
+
+        return cutoff;
     }
 
-    public void validateUser(UserRecordDto userRecordDto) {
-        if (userRepository.existsByEmail(userRecordDto.email())) {
-            throw new UserAlreadyExistsException();
+    public static LocalDate parseBirthDate(String date) {
+        try {
+            return LocalDate.parse(date, UserModel.BIRTH_DATE_FORMATTER);
+        } catch (DateTimeParseException e) {
+            throw new BusinessRulesException();
+        }
+    }
+
+    private static long toEpochDay(String date) {
+        if (date == null || date.length() != 10 || date.charAt(2) != '/' || date.charAt(5) != '/') {
+            return INVALID_DATE;
         }
 
+        int day = digits(date, 0, 2);
+        int month = digits(date, 3, 5);
+        int year = digits(date, 6, 10);
+
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID_DATE;
+        }
+
+        // Days from civil, same result as LocalDate.of(year, month, day).toEpochDay()
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int digits(String date, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = date.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    // Only the cheap checks, duplicate emails are caught by the insert itself
+    public void validateUser(UserRecordDto userRecordDto) {
         if (!checkAge(userRecordDto.birthDate())) {
             throw new BusinessRulesException();
         }
     }
+
+    private record AgeCutoff(long latestAdultBirthDay, long validUntilMillis) {
+    }
 }
\ No newline at end of file
@@ -1,17 +1,26 @@
 package br.com.pipocarosa.services;
 
+import br.com.pipocarosa.authentication.TokenRevocationService;
+import br.com.pipocarosa.config.PasswordHashingExecutor;
 import br.com.pipocarosa.dtos.PasswordUpdateDto;
 import br.com.pipocarosa.dtos.UserRecordDto;
 import br.com.pipocarosa.dtos.UserUpdateDto;
+import br.com.pipocarosa.exceptions.PreconditionFailedException;
 import br.com.pipocarosa.exceptions.UserNotFoundException;
-import br.com.pipocarosa.models.UserModel;
 import br.com.pipocarosa.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 public class UserUpdateService {
@@ -22,45 +31,69 @@ public class UserUpdateService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
-    public void deleteUser(UUID uuid) {
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
 
-        Optional<UserModel> optionalUser = userRepository.findByUuid(uuid);
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
 
-        if(optionalUser.isPresent()) {
-            userRepository.deleteById(optionalUser.get().getId());
-        } else {
-            throw new UserNotFoundException();
-        }
-    }
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor taskExecutor;
 
-    public void updateUser(UserUpdateDto userUpdateDto, UUID uuid){
+    public void deleteUser(UUID uuid) {
 
-        Optional<UserModel> optionalUser = userRepository.findByUuid(uuid);
+        Long id = userRepository.deleteByUuid(uuid).orElseThrow(UserNotFoundException::new);
 
-        if(optionalUser.isEmpty()) {
-            throw new UserNotFoundException();
-        }
+        userRepository.evictCached(uuid, id);
+        tokenRevocationService.revokeUser(uuid);
+    }
 
-        UserModel userFound = optionalUser.get();
+    // Without expected versions the update always applies; with some, only if one of them is still current.
+    // Returns the new version when it's known without reading it back
+    public Optional<Long> updateUser(UserUpdateDto userUpdateDto, UUID uuid, Set<Long> expectedVersions){
 
-        userFound.setName(userUpdateDto.name());
-        userFound.setBirthDate(userUpdateDto.birthDate());
+        String name = userUpdateDto.name();
+        LocalDate birthDate = UserRegisterService.parseBirthDate(userUpdateDto.birthDate());
 
-        userRepository.save(userFound);
+        Optional<Long> id = expectedVersions == null
+                ? userRepository.updateProfile(uuid, name, birthDate)
+                : userRepository.updateProfile(uuid, name, birthDate, expectedVersions);
 
-    }
+        if(id.isEmpty()) {
+            // Nothing matched: the values were already stored, the version moved on or there's no such user
+            Optional<Long> version = userRepository.findVersionByUuid(uuid);
 
-    public void updatePassword(PasswordUpdateDto passwordUpdateDto, UUID uuid) {
-        Optional<UserModel> optionalUser = userRepository.findByUuid(uuid);
+            if(version.isEmpty()) {
+                throw new UserNotFoundException();
+            }
+            if(expectedVersions != null && !expectedVersions.contains(version.get())) {
+                throw new PreconditionFailedException();
+            }
+            return version;
+        }
+
+        userRepository.evictCached(uuid, id.get());
 
-        if(optionalUser.isEmpty()) {
-            throw new UserNotFoundException();
+        // With several candidates, which one matched isn't known
+        if(expectedVersions == null || expectedVersions.size() > 1) {
+            return Optional.empty();
         }
+        return Optional.of(expectedVersions.iterator().next() + 1);
+    }
 
-        UserModel userFound = optionalUser.get();
+    // Hashed on the hashing pool, written from the task executor with the caller's authentication,
+    // so the replica routing still sees whose write it was
+    public CompletableFuture<Void> updatePassword(PasswordUpdateDto passwordUpdateDto, UUID uuid) {
+        Executor writer = new DelegatingSecurityContextExecutor(taskExecutor, SecurityContextHolder.getContext());
 
-        userFound.setPassword(passwordEncoder.encode(passwordUpdateDto.password()));
+        return passwordHashingExecutor.supply(() -> passwordEncoder.encode(passwordUpdateDto.password()))
+                .thenAcceptAsync(password -> {
+                    // A fresh salt makes every hash different, so this write is never skipped
+                    Long id = userRepository.changePassword(uuid, password).orElseThrow(UserNotFoundException::new);
 
-        userRepository.save(userFound);
+                    userRepository.evictCached(uuid, id);
+                    tokenRevocationService.revokeUser(uuid);
+                }, writer);
     }
 }
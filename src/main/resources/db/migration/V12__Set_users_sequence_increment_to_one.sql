@@ -0,0 +1,3 @@
+-- Users are registered through a native insert taking one nextval per row, at an increment of 50
+-- every registration skipped 49 ids. Ids handed out so far are all at or below the current value.
+ALTER SEQUENCE users_seq INCREMENT BY 1;
@@ -0,0 +1,2 @@
+-- Expired rows are purged on every revocation refresh, this keeps it from scanning the table
+CREATE INDEX IF NOT EXISTS revoked_tokens_expires_at_idx ON revoked_tokens (expires_at);
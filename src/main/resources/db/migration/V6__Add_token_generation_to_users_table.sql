@@ -0,0 +1,2 @@
+ALTER TABLE USERS
+ADD COLUMN token_generation INTEGER NOT NULL DEFAULT 0;
\ No newline at end of file
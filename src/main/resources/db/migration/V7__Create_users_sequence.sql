@@ -0,0 +1,3 @@
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50;
+
+SELECT setval('users_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM users));
\ No newline at end of file
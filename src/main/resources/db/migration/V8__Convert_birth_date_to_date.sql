@@ -0,0 +1,4 @@
+ALTER TABLE users
+ALTER COLUMN birth_date TYPE DATE USING to_date(birth_date, 'DD/MM/YYYY');
+
+CREATE INDEX IF NOT EXISTS users_birth_date_idx ON users (birth_date, id);
\ No newline at end of file
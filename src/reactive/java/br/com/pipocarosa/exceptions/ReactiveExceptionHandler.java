@@ -0,0 +1,63 @@
+package br.com.pipocarosa.exceptions;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.server.WebFilterExchange;
+import org.springframework.security.web.server.authentication.ServerAuthenticationFailureHandler;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link RestExceptionHandler} for the reactive read service, with the same error bodies.
+ * Also answers requests whose bearer token fails authentication.
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveExceptionHandler implements ServerAuthenticationFailureHandler {
+
+    private static final ApiErrorWriter USER_NOT_FOUND =
+            new ApiErrorWriter(HttpStatus.NOT_FOUND, UserNotFoundException.MESSAGE);
+    private static final ApiErrorWriter INVALID_UUID_FORMAT =
+            new ApiErrorWriter(HttpStatus.BAD_REQUEST, "Invalid uuid format");
+    private static final ApiErrorWriter INVALID_TOKEN =
+            new ApiErrorWriter(HttpStatus.BAD_REQUEST, InvalidTokenException.MESSAGE);
+
+    private ResponseEntity<Object> buildResponseEntity(ApiErrorWriter writer, ServerHttpRequest request) {
+        return ResponseEntity.status(writer.getStatus())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(writer.write(request.getPath().value()));
+    }
+
+    @ExceptionHandler(UserNotFoundException.class)
+    public ResponseEntity<Object> handleUserNotFoundException(UserNotFoundException ex, ServerHttpRequest request) {
+        return buildResponseEntity(USER_NOT_FOUND, request);
+    }
+
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<Object> handleTypeMismatch(ServerWebInputException ex, ServerHttpRequest request) {
+        return buildResponseEntity(INVALID_UUID_FORMAT, request);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<Object> handleGenericExceptions(Exception ex, ServerHttpRequest request) {
+        return buildResponseEntity(new ApiErrorWriter(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage()), request);
+    }
+
+    @Override
+    public Mono<Void> onAuthenticationFailure(WebFilterExchange webFilterExchange, AuthenticationException exception) {
+        ServerHttpRequest request = webFilterExchange.getExchange().getRequest();
+        ServerHttpResponse response = webFilterExchange.getExchange().getResponse();
+
+        response.setStatusCode(INVALID_TOKEN.getStatus());
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.fromCallable(() ->
+                response.bufferFactory().wrap(INVALID_TOKEN.write(request.getPath().value()))));
+    }
+}
@@ -0,0 +1,95 @@
+package br.com.pipocarosa.reactive;
+
+import br.com.pipocarosa.config.JwtService;
+import br.com.pipocarosa.config.RevokedTokenSet;
+import br.com.pipocarosa.config.UserAuthenticationToken;
+import br.com.pipocarosa.config.VerifiedToken;
+import br.com.pipocarosa.config.VerifiedTokenCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * The checks of {@link br.com.pipocarosa.config.JwtAuthenticationFilter} without blocking:
+ * the signature is verified by {@link JwtService}, verified tokens are reused from
+ * {@link VerifiedTokenCache}, revoked tokens are looked up in {@link RevokedTokenSet},
+ * and the user and token generation are read over R2DBC.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveJwtAuthenticationManager implements ReactiveAuthenticationManager {
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private ReactiveTokenGenerationService tokenGenerationService;
+
+    @Autowired
+    private ReactiveUserRepository userRepository;
+
+    @Autowired
+    private RevokedTokenSet revokedTokenSet;
+
+    // Trusts the signed role and permissions claims instead of loading the user
+    @Value("${security.jwt.stateless}")
+    private boolean stateless;
+
+    // The credentials are the bearer token
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        String jwt = (String) authentication.getCredentials();
+
+        VerifiedToken cached = verifiedTokenCache.get(jwt);
+        Mono<VerifiedToken> verifiedToken = cached != null
+                ? Mono.just(cached)
+                : verifyToken(jwt).doOnNext(token -> verifiedTokenCache.put(jwt, token));
+
+        // Role changes and deletions bump the user's generation, invalidating older tokens
+        return verifiedToken
+                .filter(token -> token.jti() == null || !revokedTokenSet.contains(token.jti()))
+                .filterWhen(token -> tokenGenerationService.isCurrent(token.uuid(), token.generation()))
+                .switchIfEmpty(Mono.error(() -> new BadCredentialsException("Invalid token")))
+                .map(UserAuthenticationToken::new);
+    }
+
+    private Mono<VerifiedToken> verifyToken(String jwt) {
+        Claims claims;
+        try {
+            claims = jwtService.extractAllClaims(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            return Mono.error(new BadCredentialsException("Invalid token", e));
+        }
+
+        // Tokens issued before the role and permissions claims existed always go through the database
+        if (stateless) {
+            VerifiedToken verifiedToken = VerifiedToken.fromClaims(claims);
+            if (verifiedToken != null) {
+                return Mono.just(verifiedToken);
+            }
+        }
+
+        Integer generation = claims.get(JwtService.GENERATION_CLAIM, Integer.class);
+
+        return userRepository.findCredentialsByEmail(claims.getSubject())
+                .doOnNext(user -> tokenGenerationService.remember(user.uuid(), user.tokenGeneration()))
+                .map(user -> new VerifiedToken(
+                        claims.getSubject(),
+                        user.uuid(),
+                        VerifiedToken.jtiOf(claims),
+                        generation == null ? 0 : generation,
+                        user.role().getAuthorities(),
+                        claims.getExpiration().getTime()
+                ));
+    }
+}
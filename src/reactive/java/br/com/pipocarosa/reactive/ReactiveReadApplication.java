@@ -0,0 +1,57 @@
+package br.com.pipocarosa.reactive;
+
+import br.com.pipocarosa.config.JsonConfiguration;
+import br.com.pipocarosa.config.JwtService;
+import br.com.pipocarosa.config.RevokedTokenSet;
+import br.com.pipocarosa.config.VerifiedTokenCache;
+import br.com.pipocarosa.exceptions.ReactiveExceptionHandler;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Read-only service for GET /user/{uuid} and GET /users on WebFlux and R2DBC, run next to
+ * the main application against the same database. A few event loop threads and pooled
+ * connections serve any number of slow clients, and /users streams with backpressure.
+ *
+ * Built with the reactive Maven profile and configured by reactive.properties. The main
+ * application scans this package too, so every bean here is conditional on a reactive
+ * web application.
+ */
+@SpringBootApplication(exclude = {
+        DataSourceAutoConfiguration.class,
+        ReactiveUserDetailsServiceAutoConfiguration.class
+})
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableScheduling
+@Import({JsonConfiguration.class, JwtService.class, VerifiedTokenCache.class, RevokedTokenSet.class, ReactiveExceptionHandler.class})
+public class ReactiveReadApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveReadApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .properties("spring.config.name=reactive")
+                .run(args);
+    }
+
+    // Tomcat is on the classpath for the main application and would otherwise be preferred
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    // The main application migrates the schema, this one only checks it's reading the same version
+    @Bean
+    public FlywayMigrationStrategy validateOnlyMigrationStrategy() {
+        return Flyway::validate;
+    }
+}
@@ -0,0 +1,60 @@
+package br.com.pipocarosa.reactive;
+
+import br.com.pipocarosa.config.JwtAuthenticationFilter;
+import br.com.pipocarosa.exceptions.ReactiveExceptionHandler;
+import br.com.pipocarosa.models.enums.Permission;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import reactor.core.publisher.Mono;
+
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfiguration {
+
+    @Autowired
+    private ReactiveJwtAuthenticationManager authenticationManager;
+
+    @Autowired
+    private ReactiveExceptionHandler reactiveExceptionHandler;
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+
+        AuthenticationWebFilter jwtAuthenticationFilter = new AuthenticationWebFilter(authenticationManager);
+        jwtAuthenticationFilter.setServerAuthenticationConverter(exchange -> Mono.justOrEmpty(
+                JwtAuthenticationFilter.extractBearerToken(exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
+        ).map(jwt -> UsernamePasswordAuthenticationToken.unauthenticated(jwt, jwt)));
+        jwtAuthenticationFilter.setAuthenticationFailureHandler(reactiveExceptionHandler);
+
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .logout(ServerHttpSecurity.LogoutSpec::disable)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .addFilterAt(jwtAuthenticationFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                // Same status as the main application for requests without a token
+                .exceptionHandling(exceptionConfig ->
+                        exceptionConfig.authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN)))
+                .authorizeExchange(authConfig -> authConfig
+                        .pathMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                        .pathMatchers(HttpMethod.GET, "/users").hasAuthority(Permission.READ_ALL_DATA.name())
+                        .pathMatchers(HttpMethod.GET, "/user/**").hasAuthority(Permission.READ_PERSONAL_DATA.name())
+                        .anyExchange().denyAll())
+                .build();
+    }
+}
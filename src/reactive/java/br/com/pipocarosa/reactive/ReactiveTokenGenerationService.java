@@ -0,0 +1,55 @@
+package br.com.pipocarosa.reactive;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link br.com.pipocarosa.authentication.TokenGenerationService}:
+ * a user's current token generation is read at most once per time-to-live, and concurrent
+ * requests for the same user share that one query.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTokenGenerationService {
+
+    // Generation reported for users that no longer exist, never matches a token
+    private static final int DELETED = -1;
+
+    @Autowired
+    private ReactiveUserRepository userRepository;
+
+    private final AsyncCache<UUID, Integer> generations;
+
+    public ReactiveTokenGenerationService(
+            @Value("${security.jwt.generation.ttl-seconds}") long ttlSeconds,
+            @Value("${security.jwt.generation.max-size}") int maxSize
+    ) {
+        this.generations = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .buildAsync();
+    }
+
+    public Mono<Boolean> isCurrent(UUID uuid, int generation) {
+        return Mono.fromFuture(() -> generations.get(uuid, (key, executor) ->
+                        userRepository.findTokenGenerationByUuid(key).defaultIfEmpty(DELETED).toFuture()))
+                .map(current -> current == generation);
+    }
+
+    public void remember(UUID uuid, int generation) {
+        generations.put(uuid, CompletableFuture.completedFuture(generation));
+    }
+
+    public void invalidate(UUID uuid) {
+        generations.synchronous().invalidate(uuid);
+    }
+}
@@ -0,0 +1,73 @@
+package br.com.pipocarosa.reactive;
+
+import br.com.pipocarosa.config.RevokedTokenSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Reads the revocations written by the main application, like
+ * {@link br.com.pipocarosa.authentication.TokenRevocationService#refresh()} does there.
+ * Runs on the scheduling thread, never on the event loop.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTokenRevocationService {
+
+    private static final Duration COMMIT_LAG = Duration.ofSeconds(5);
+
+    private static final Duration QUERY_TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private RevokedTokenSet revokedTokenSet;
+
+    @Autowired
+    private ReactiveTokenGenerationService tokenGenerationService;
+
+    private Instant lastRevokedAt = Instant.EPOCH;
+
+    private record Revocation(UUID jti, UUID userUuid, Instant expiresAt, Instant revokedAt) {
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.revocation.refresh-millis}")
+    public synchronized void refresh() {
+        Instant now = Instant.now();
+
+        databaseClient.sql("SELECT jti, user_uuid, expires_at, revoked_at FROM revoked_tokens " +
+                        "WHERE revoked_at > :since AND expires_at > :now ORDER BY revoked_at")
+                .bind("since", lastRevokedAt.minus(COMMIT_LAG))
+                .bind("now", now)
+                .map(row -> new Revocation(
+                        row.get("jti", UUID.class),
+                        row.get("user_uuid", UUID.class),
+                        row.get("expires_at", OffsetDateTime.class).toInstant(),
+                        row.get("revoked_at", OffsetDateTime.class).toInstant()
+                ))
+                .all()
+                .doOnNext(revocation -> {
+                    if (revocation.jti() != null) {
+                        revokedTokenSet.add(revocation.jti(), revocation.expiresAt().toEpochMilli());
+                    }
+                    if (revocation.userUuid() != null) {
+                        tokenGenerationService.invalidate(revocation.userUuid());
+                    }
+                    if (revocation.revokedAt().isAfter(lastRevokedAt)) {
+                        lastRevokedAt = revocation.revokedAt();
+                    }
+                })
+                .then()
+                .block(QUERY_TIMEOUT);
+
+        revokedTokenSet.removeExpired(now.toEpochMilli());
+    }
+}
@@ -0,0 +1,82 @@
+package br.com.pipocarosa.reactive;
+
+import br.com.pipocarosa.dtos.UserResponseDto;
+import br.com.pipocarosa.dtos.UserSummaryDto;
+import br.com.pipocarosa.exceptions.UserNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+import static br.com.pipocarosa.controller.UserRegisterController.NDJSON_VALUE;
+import static br.com.pipocarosa.controller.UserRegisterController.NEXT_CURSOR_HEADER;
+import static br.com.pipocarosa.controller.UserRegisterController.TOTAL_COUNT_ESTIMATE_HEADER;
+
+// Same requests and responses as the read endpoints of UserRegisterController
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+
+    @Autowired
+    private ReactiveUserRepository userRepository;
+
+    @Value("${users.page.max-limit}")
+    private int maxPageLimit;
+
+    @GetMapping("/users")
+    public Mono<ResponseEntity<List<UserResponseDto>>> getAllUsers(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "100") int limit,
+            ServerHttpRequest request
+    ) {
+        int pageSize = Math.min(Math.max(limit, 1), maxPageLimit);
+
+        Mono<List<UserSummaryDto>> users = userRepository
+                .findByIdGreaterThanOrderByIdAsc(after == null ? 0L : after, pageSize)
+                .collectList();
+
+        return Mono.zip(users, userRepository.estimateCount().defaultIfEmpty(0L)).map(page -> {
+            List<UserSummaryDto> summaries = page.getT1();
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .header(TOTAL_COUNT_ESTIMATE_HEADER, String.valueOf(page.getT2()));
+
+            if (summaries.size() == pageSize) {
+                Long nextCursor = summaries.get(summaries.size() - 1).id();
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(nextCursor));
+                response.header(HttpHeaders.LINK, UriComponentsBuilder.fromUri(request.getURI())
+                        .replaceQueryParam("after", nextCursor)
+                        .replaceQueryParam("limit", limit)
+                        .toUriString() + "; rel=\"next\"");
+            }
+
+            return response.body(summaries.stream().map(UserSummaryDto::toResponse).toList());
+        });
+    }
+
+    // Rows are read from the cursor only as fast as the client takes them
+    @GetMapping(value = "/users", produces = NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<UserResponseDto>>> streamAllUsers() {
+        return userRepository.estimateCount().defaultIfEmpty(0L).map(count -> ResponseEntity.ok()
+                .header(TOTAL_COUNT_ESTIMATE_HEADER, String.valueOf(count))
+                .body(userRepository.streamAllOrderedById()));
+    }
+
+    @GetMapping("/user/{uuid}")
+    public Mono<UserResponseDto> getUser(@PathVariable UUID uuid) {
+        return userRepository.findResponseByUuid(uuid)
+                .switchIfEmpty(Mono.error(UserNotFoundException::new));
+    }
+}
@@ -0,0 +1,94 @@
+package br.com.pipocarosa.reactive;
+
+import br.com.pipocarosa.dtos.UserResponseDto;
+import br.com.pipocarosa.dtos.UserSummaryDto;
+import br.com.pipocarosa.models.enums.Role;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * The read queries of {@link br.com.pipocarosa.repositories.UserRepository} as plain SQL
+ * over R2DBC, on the users table created by the Flyway migrations.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserRepository {
+
+    // Rows per round trip while streaming, the next batch is only fetched once the client takes these
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public record UserCredentials(UUID uuid, Role role, int tokenGeneration) {
+    }
+
+    public Mono<UserResponseDto> findResponseByUuid(UUID uuid) {
+        return databaseClient.sql("SELECT name, email, birth_date FROM users WHERE uuid = :uuid")
+                .bind("uuid", uuid)
+                .map(ReactiveUserRepository::toResponse)
+                .one();
+    }
+
+    public Flux<UserSummaryDto> findByIdGreaterThanOrderByIdAsc(long id, int limit) {
+        return databaseClient.sql("SELECT id, name, email, birth_date FROM users WHERE id > :id ORDER BY id LIMIT :limit")
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(row -> new UserSummaryDto(
+                        row.get("id", Long.class),
+                        row.get("name", String.class),
+                        row.get("email", String.class),
+                        row.get("birth_date", LocalDate.class)
+                ))
+                .all();
+    }
+
+    public Flux<UserResponseDto> streamAllOrderedById() {
+        return databaseClient.sql("SELECT name, email, birth_date FROM users ORDER BY id")
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .map(ReactiveUserRepository::toResponse)
+                .all();
+    }
+
+    public Mono<Integer> findTokenGenerationByUuid(UUID uuid) {
+        return databaseClient.sql("SELECT token_generation FROM users WHERE uuid = :uuid")
+                .bind("uuid", uuid)
+                .map(row -> row.get("token_generation", Integer.class))
+                .one();
+    }
+
+    public Mono<UserCredentials> findCredentialsByEmail(String email) {
+        return databaseClient.sql("SELECT uuid, role, token_generation FROM users WHERE email = :email")
+                .bind("email", email)
+                .map(row -> new UserCredentials(
+                        row.get("uuid", UUID.class),
+                        Role.valueOf(row.get("role", String.class)),
+                        row.get("token_generation", Integer.class)
+                ))
+                .one();
+    }
+
+    // Planner statistics instead of count(*), which scans the whole table
+    public Mono<Long> estimateCount() {
+        return databaseClient.sql("SELECT CAST(GREATEST(reltuples, 0) AS BIGINT) AS estimate FROM pg_class "
+                        + "WHERE oid = to_regclass('users')")
+                .map(row -> row.get("estimate", Long.class))
+                .one();
+    }
+
+    private static UserResponseDto toResponse(Readable row) {
+        return new UserResponseDto(
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("birth_date", LocalDate.class)
+        );
+    }
+}
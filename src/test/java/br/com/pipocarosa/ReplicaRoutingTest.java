@@ -0,0 +1,135 @@
+package br.com.pipocarosa;
+
+import br.com.pipocarosa.config.ReplicaRoutingDataSource;
+import br.com.pipocarosa.exceptions.UserNotFoundException;
+import br.com.pipocarosa.models.UserModel;
+import br.com.pipocarosa.repositories.UserRepository;
+import br.com.pipocarosa.services.UserQueryService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two independent databases stand in for a primary and its replica, so where a read went shows in what it finds
+@SpringBootTest
+public class ReplicaRoutingTest {
+
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+            "postgres:16.2-alpine"
+    );
+
+    static PostgreSQLContainer<?> replica = new PostgreSQLContainer<>(
+            "postgres:16.2-alpine"
+    );
+
+    static JdbcTemplate replicaJdbc;
+
+    @BeforeAll
+    static void startContainers() {
+        postgres.start();
+        replica.start();
+
+        Flyway.configure()
+                .dataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword())
+                .load()
+                .migrate();
+
+        replicaJdbc = new JdbcTemplate(new DriverManagerDataSource(
+                replica.getJdbcUrl(), replica.getUsername(), replica.getPassword()));
+    }
+
+    @AfterAll
+    static void stopContainers() {
+        postgres.stop();
+        replica.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("datasource.replicas.enabled", () -> "true");
+        registry.add("datasource.replicas.urls", replica::getJdbcUrl);
+        registry.add("datasource.replicas.sticky-millis", () -> "60000");
+        registry.add("security.jwt.revocation.refresh-millis", () -> "3600000");
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserQueryService userQueryService;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        replicaJdbc.update("DELETE FROM users");
+        replicaRoutingDataSource.checkReplicas();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void shouldReadFromTheReplicaInReadOnlyTransactions() {
+        UUID uuid = insertOnReplica("replica@gmail.com");
+
+        assertEquals(1, replicaRoutingDataSource.getHealthyReplicaCount());
+        assertEquals("replica@gmail.com", userQueryService.getOneUser(uuid).user().email());
+        // Outside a read-only transaction the same lookup goes to the primary
+        assertTrue(userRepository.findVersionedResponseByUuid(uuid).isEmpty());
+    }
+
+    @Test
+    void shouldReadFromThePrimaryAfterTheUsersOwnWrite() {
+        UUID uuid = insertOnReplica("replica@gmail.com");
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("writer@gmail.com", null, List.of()));
+        assertEquals("replica@gmail.com", userQueryService.getOneUser(uuid).user().email());
+
+        UserModel user = new UserModel(null, "Writer", "writer@gmail.com", "17/08/2001");
+        user.setPassword("123456");
+        userRepository.save(user);
+
+        // Within the sticky window this user's reads see the primary, where the replica's row doesn't exist
+        assertThrows(UserNotFoundException.class, () -> userQueryService.getOneUser(uuid));
+        assertNotNull(userQueryService.getOneUser(user.getUuid()));
+
+        // Other users keep reading from the replica
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("reader@gmail.com", null, List.of()));
+        assertEquals("replica@gmail.com", userQueryService.getOneUser(uuid).user().email());
+    }
+
+    private static UUID insertOnReplica(String email) {
+        UUID uuid = UUID.randomUUID();
+        replicaJdbc.update(
+                "INSERT INTO users (name, email, birth_date, password, uuid, role) VALUES (?, ?, ?, ?, ?, 'USER')",
+                "Replica", email, LocalDate.of(2001, 8, 17), "123456", uuid);
+        return uuid;
+    }
+}
@@ -0,0 +1,134 @@
+package br.com.pipocarosa;
+
+import br.com.pipocarosa.authentication.TokenGenerationService;
+import br.com.pipocarosa.models.UserModel;
+import br.com.pipocarosa.models.enums.Role;
+import br.com.pipocarosa.repositories.UserRepository;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import static org.hamcrest.Matchers.equalTo;
+
+// Tokens are authorized from their signed claims; the database is changed behind the application's back to show it
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class StatelessAuthenticationTest {
+
+    @LocalServerPort
+    private Integer port;
+
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+            "postgres:16.2-alpine"
+    );
+
+    @BeforeAll
+    static void startContainers() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void stopContainers() {
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("management.server.port", () -> "0");
+        registry.add("security.jwt.stateless", () -> "true");
+        registry.add("security.jwt.revocation.refresh-millis", () -> "3600000");
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TokenGenerationService tokenGenerationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void shouldAuthorizeFromTheTokensClaims() {
+        UserModel admin = saveUser(Role.ADMIN);
+        String jwt = login();
+
+        // Loading the user would find a plain USER now, the token still says ADMIN
+        jdbcTemplate.update("UPDATE users SET role = 'USER' WHERE uuid = ?", admin.getUuid());
+        userRepository.evictCached(admin.getUuid());
+        userRepository.evictCached(admin.getEmail());
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .when()
+                .get("/users")
+                .then()
+                .statusCode(200);
+    }
+
+    @Test
+    void shouldRejectTokensOfAnOlderGeneration() {
+        UserModel user = saveUser(Role.USER);
+        String jwt = login();
+        String path = "/user/" + user.getUuid();
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .when()
+                .get(path)
+                .then()
+                .statusCode(200);
+
+        // As another instance would, once this one's generation of the user is due for a reload
+        jdbcTemplate.update("UPDATE users SET token_generation = token_generation + 1 WHERE uuid = ?", user.getUuid());
+        tokenGenerationService.invalidate(user.getUuid());
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .when()
+                .get(path)
+                .then()
+                .statusCode(400)
+                .body("message", equalTo("Invalid token"));
+    }
+
+    private UserModel saveUser(Role role) {
+        UserModel user = new UserModel(1L, "Felipe Enzo", "felipe@gmail.com", "17/08/2001");
+        user.setPassword(passwordEncoder.encode("123456"));
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+
+    private String login() {
+        return RestAssured.given()
+                .contentType(ContentType.JSON)
+                .body("{\"email\": \"felipe@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(200)
+                .extract().path("jwt");
+    }
+}
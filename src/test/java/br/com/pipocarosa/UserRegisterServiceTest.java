@@ -1,24 +1,48 @@
 package br.com.pipocarosa;
 
+import br.com.pipocarosa.authentication.AuthenticationResponse;
+import br.com.pipocarosa.config.PasswordHashingExecutor;
+import br.com.pipocarosa.config.RateLimiter;
+import br.com.pipocarosa.config.VerifiedToken;
+import br.com.pipocarosa.config.VerifiedTokenCache;
+import br.com.pipocarosa.exceptions.UserNotFoundException;
+import br.com.pipocarosa.dtos.UserResponseDto;
+import br.com.pipocarosa.dtos.UserUpdateDto;
 import br.com.pipocarosa.models.UserModel;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 import br.com.pipocarosa.models.enums.Role;
 import br.com.pipocarosa.repositories.UserRepository;
 import br.com.pipocarosa.services.UserRegisterService;
+import br.com.pipocarosa.services.UserUpdateService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.restassured.RestAssured;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
 import io.restassured.http.ContentType;
 import io.restassured.response.Response;
 import org.apache.catalina.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -27,16 +51,26 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability(tracing = false)
 public class UserRegisterServiceTest {
 
     @LocalServerPort
     private Integer port;
+
+    @LocalManagementPort
+    private Integer managementPort;
     static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
             "postgres:16.2-alpine"
     );
@@ -56,20 +90,45 @@ public class UserRegisterServiceTest {
         registry.add("spring.datasource.url", postgres::getJdbcUrl);
         registry.add("spring.datasource.username", postgres::getUsername);
         registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
+        registry.add("management.server.port", () -> "0");
+        // Revocations made here apply right away; the background refresh would only add to the statement counts
+        registry.add("security.jwt.revocation.refresh-millis", () -> "3600000");
     }
 
     @Autowired
     UserRepository userRepository;
     @Autowired
     UserRegisterService userRegisterService;
+    @Autowired
+    UserUpdateService userUpdateService;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @BeforeEach
     void setUp() {
         RestAssured.baseURI = "http://localhost:" + port;
         userRepository.deleteAll();
+        rateLimiter.invalidateAll();
     }
 
 
@@ -88,6 +147,43 @@ public class UserRegisterServiceTest {
         assertFalse(userRegisterService.checkAge(eighteenYearsAgoAndOneDayLater));
     }
 
+    @Test
+    void shouldSerializeResponsesAsJacksonWouldByDefault() throws JsonProcessingException {
+        ObjectMapper defaultMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        UserResponseDto user = new UserResponseDto("José \"Zé\" Silva", "jose@gmail.com", LocalDate.of(2001, 8, 7));
+        assertEquals("{\"name\":\"José \\\"Zé\\\" Silva\",\"email\":\"jose@gmail.com\",\"birthDate\":\"07/08/2001\"}",
+                objectMapper.writeValueAsString(user));
+
+        UUID uuid = UUID.fromString("0b5a4c5e-7d1f-4a8e-9c3b-2f6d8e1a0c47");
+        AuthenticationResponse response = new AuthenticationResponse("header.payload.signature", uuid, "refresh");
+        assertEquals("{\"jwt\":\"header.payload.signature\",\"uuid\":\"0b5a4c5e-7d1f-4a8e-9c3b-2f6d8e1a0c47\"," +
+                "\"refreshToken\":\"refresh\"}", objectMapper.writeValueAsString(response));
+
+        // Edge cases of the hand-written serializers, byte for byte what the reflective ones write
+        List<Object> bodies = List.of(
+                user,
+                new UserResponseDto(null, "", null),
+                new UserResponseDto("Ana", "ana@gmail.com", LocalDate.of(5, 1, 31)),
+                new UserResponseDto("Ana", "ana@gmail.com", LocalDate.of(12000, 12, 1)),
+                response,
+                new AuthenticationResponse(null, null, null)
+        );
+        for (Object body : bodies) {
+            assertEquals(defaultMapper.writeValueAsString(body), objectMapper.writeValueAsString(body));
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidBirthDates() {
+        assertTrue(userRegisterService.checkAge("29/02/2000"));
+        assertFalse(userRegisterService.checkAge("29/02/2001"));
+        assertFalse(userRegisterService.checkAge("31/04/2000"));
+        assertFalse(userRegisterService.checkAge("00/01/2000"));
+        assertFalse(userRegisterService.checkAge("01/13/2000"));
+        assertFalse(userRegisterService.checkAge("1a/01/2000"));
+    }
+
     @Test
     void shouldVerifyIfEmailAlreadyExists() {
         UserModel user = new UserModel(
@@ -165,6 +261,61 @@ public class UserRegisterServiceTest {
         System.out.println(jwt);
     }
 
+    @Test
+    void shouldPostUserWithSingleStatement() {
+        String requestBody =
+                "{\n" +
+                        "\t\"name\": \"Pedro\",\n" +
+                        "\t\"email\": \"pedro@gmail.com\",\n" +
+                        "\t\"birthDate\": \"09/02/2002\",\n" +
+                        "\t\"password\": \"345868\"\n" +
+                        "}";
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body(requestBody)
+                .when()
+                .post("/register")
+                .then()
+                .statusCode(201);
+
+        // The insert itself detects duplicates, there's no separate existence check.
+        // The second statement stores the refresh token
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body(requestBody)
+                .when()
+                .post("/register")
+                .then()
+                .statusCode(409)
+                .body("message", equalTo("User already exists"));
+    }
+
+    @Test
+    void shouldTakeConsecutiveIdsOnRegister() {
+        for (String email : List.of("pedro@gmail.com", "ana@gmail.com")) {
+            RestAssured.given()
+                    .contentType(ContentType.JSON)
+                    .and()
+                    .body("{\"name\": \"Pedro\", \"email\": \"" + email + "\", \"birthDate\": \"09/02/2002\", \"password\": \"345868\"}")
+                    .when()
+                    .post("/register")
+                    .then()
+                    .statusCode(201);
+        }
+
+        long pedroId = userRepository.findByEmail("pedro@gmail.com").orElseThrow().getId();
+        long anaId = userRepository.findByEmail("ana@gmail.com").orElseThrow().getId();
+        assertEquals(pedroId + 1, anaId);
+    }
+
     @Test
     void shouldFailPostDuoToAge() {
         String requestBody =
@@ -209,54 +360,822 @@ public class UserRegisterServiceTest {
         RestAssured.given()
                 .contentType(ContentType.JSON)
                 .and()
-                .body(requestBody)
+                .body(requestBody)
+                .when()
+                .post("/register")
+                .then()
+                .statusCode(400)
+                .body("message", equalTo("Error in Business Rules"));
+    }
+
+    @Test
+    void shouldFailPostDuoToInvalidDataFormat() {
+        String requestBody =
+                "{\n" +
+                        "\t\"name\": \"\",\n" +
+                        "\t\"email\": \"junior@gmail.com\",\n" +
+                        "\t\"birthDate\": \"17/08/2001\",\n" +
+                        "\t\"password\": \"123456\"\n" +
+                        "}";
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body(requestBody)
+                .when()
+                .post("/register")
+                .then()
+                .statusCode(400)
+                .body("message", equalTo("Invalid data format"));
+    }
+
+    @Test
+    void shouldFailedPostDueToEmailAlreadyExists() {
+
+        UserModel user = new UserModel(
+                1L,
+                "Junior Souza",
+                "junior@gmail.com",
+                "17/08/2001"
+        );
+        user.setPassword(passwordEncoder.encode("123456"));
+
+        userRepository.save(user);
+
+        String requestBody =
+                "{\n" +
+                        "\t\"name\": \"Junior Fernandes\",\n" +
+                        "\t\"email\": \"junior@gmail.com\",\n" +
+                        "\t\"birthDate\": \"09/02/2002\",\n" +
+                        "\t\"password\": \"345868\"\n" +
+                        "}";
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body(requestBody)
+                .when()
+                .post("/register")
+                .then()
+                .statusCode(409);
+    }
+
+
+    // Post - register batch
+    @Test
+    void shouldRegisterUsersInBatch() {
+
+        UserModel admin = new UserModel(
+                1L,
+                "Felipe Enzo",
+                "felipe@gmail.com",
+                "17/08/2001"
+        );
+        admin.setPassword(passwordEncoder.encode("123456"));
+        admin.setRole(Role.ADMIN);
+        userRepository.save(admin);
+
+        String jwt = RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body("{\"email\": \"felipe@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .extract().path("jwt");
+
+        String underage = LocalDate.now().minusYears(10).format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+
+        String requestBody =
+                "{\n" +
+                        "\t\"issueTokens\": true,\n" +
+                        "\t\"users\": [\n" +
+                        "\t\t{\"name\": \"Pedro\", \"email\": \"pedro@gmail.com\", \"birthDate\": \"09/02/2002\", \"password\": \"345868\"},\n" +
+                        "\t\t{\"name\": \"Ana\", \"email\": \"ana@gmail.com\", \"birthDate\": \"" + underage + "\", \"password\": \"345868\"},\n" +
+                        "\t\t{\"name\": \"Felipe\", \"email\": \"felipe@gmail.com\", \"birthDate\": \"09/02/2002\", \"password\": \"345868\"},\n" +
+                        "\t\t{\"name\": \"Pedro\", \"email\": \"pedro@gmail.com\", \"birthDate\": \"09/02/2002\", \"password\": \"345868\"}\n" +
+                        "\t]\n" +
+                        "}";
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .header("Authorization", "Bearer " + jwt)
+                .and()
+                .body(requestBody)
+                .when()
+                .post("/register/batch")
+                .then()
+                .statusCode(200)
+                .body("status", equalTo(List.of("CREATED", "REJECTED", "ALREADY_EXISTS", "ALREADY_EXISTS")))
+                .body("[0].jwt", notNullValue());
+
+        assertTrue(userRepository.existsByEmail("pedro@gmail.com"));
+        assertFalse(userRepository.existsByEmail("ana@gmail.com"));
+    }
+
+    @Test
+    void shouldInsertBatchesInOneStatementSkippingTakenEmails() {
+        UserModel existing = new UserModel(null, "Pedro Melo", "pedro@gmail.com", "09/02/2002");
+        existing.setPassword("345868");
+        userRepository.save(existing);
+
+        List<UserModel> users = List.of(
+                new UserModel(null, "Pedro", "pedro@gmail.com", "09/02/2002"),
+                new UserModel(null, "Ana", "ana@gmail.com", "20/05/1980"),
+                new UserModel(null, "Joao", "joao@gmail.com", "01/01/1990")
+        );
+        users.forEach(user -> user.setPassword("345868"));
+
+        Map<String, Long> ids = userRepository.insertAllIfEmailAbsent(users);
+
+        assertEquals(Set.of("ana@gmail.com", "joao@gmail.com"), ids.keySet());
+        assertEquals(ids.get("ana@gmail.com") + 1, ids.get("joao@gmail.com"));
+        assertEquals("Pedro Melo", userRepository.findByEmail("pedro@gmail.com").orElseThrow().getName());
+        assertEquals(LocalDate.of(1980, 5, 20), userRepository.findByEmail("ana@gmail.com").orElseThrow().getBirthDate());
+    }
+
+    // Get - users by birth date
+    @Test
+    void shouldGetUsersByBirthDateRangeAndAge() {
+
+        UserModel admin = new UserModel(
+                1L,
+                "Felipe Enzo",
+                "felipe@gmail.com",
+                "17/08/2001"
+        );
+        admin.setPassword(passwordEncoder.encode("123456"));
+        admin.setRole(Role.ADMIN);
+        userRepository.save(admin);
+
+        UserModel pedro = new UserModel(2L, "Pedro Melo", "pedro@gmail.com", "09/02/2002");
+        pedro.setPassword(passwordEncoder.encode("345868"));
+        userRepository.save(pedro);
+
+        UserModel ana = new UserModel(3L, "Ana Clara", "ana@gmail.com", "20/05/1980");
+        ana.setPassword(passwordEncoder.encode("345868"));
+        userRepository.save(ana);
+
+        String jwt = RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body("{\"email\": \"felipe@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .extract().path("jwt");
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .queryParam("from", "01/01/2000")
+                .queryParam("to", "31/12/2002")
+                .when()
+                .get("/users/by-birth-date")
+                .then()
+                .statusCode(200)
+                .body("name", equalTo(List.of("Felipe Enzo", "Pedro Melo")))
+                .body("birthDate", equalTo(List.of("17/08/2001", "09/02/2002")));
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .queryParam("minAge", 30)
+                .when()
+                .get("/users/by-birth-date")
+                .then()
+                .statusCode(200)
+                .body("email", equalTo(List.of("ana@gmail.com")));
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .queryParam("from", "31/02/2002")
+                .when()
+                .get("/users/by-birth-date")
+                .then()
+                .statusCode(400);
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .queryParam("maxAge", Integer.MAX_VALUE)
+                .when()
+                .get("/users/by-birth-date")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void shouldForbidRoutesOutsideUserPermissions() {
+
+        UserModel user = new UserModel(
+                1L,
+                "Felipe Enzo",
+                "felipe@gmail.com",
+                "17/08/2001"
+        );
+        user.setPassword(passwordEncoder.encode("123456"));
+        userRepository.save(user);
+
+        String jwt = RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body("{\"email\": \"felipe@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .extract().path("jwt");
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .when()
+                .get("/user/" + user.getUuid())
+                .then()
+                .statusCode(200);
+
+        for (String path : List.of("/users", "/users/by-birth-date", "/actuator/metrics", "/unknown")) {
+            RestAssured.given()
+                    .header("Authorization", "Bearer " + jwt)
+                    .when()
+                    .get(path)
+                    .then()
+                    .statusCode(403);
+        }
+
+        RestAssured.given()
+                .when()
+                .get("/user/" + user.getUuid())
+                .then()
+                .statusCode(403);
+    }
+
+
+    // Post - login
+    @Test
+    void shouldAuthenticateUser() {
+
+        UserModel user = new UserModel(
+                1L,
+                "Felipe Enzo",
+                "felipe@gmail.com",
+                "17/08/2001"
+        );
+
+        user.setPassword(passwordEncoder.encode("123456"));
+        userRepository.save(user);
+
+        String requestBody =
+                "{\n" +
+                        "\t\"email\": \"felipe@gmail.com\",\n" +
+                        "\t\"password\": \"123456\"\n" +
+                        "}";
+
+        String jwt = RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body(requestBody)
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(200)
+                .extract().path("jwt");
+
+        System.out.println(jwt);
+    }
+
+    @Test
+    void shouldAnswerServiceUnavailableWhenHashingPoolIsSaturated() throws InterruptedException {
+
+        UserModel user = new UserModel(1L, "Felipe Enzo", "felipe@gmail.com", "17/08/2001");
+        user.setPassword(passwordEncoder.encode("123456"));
+        userRepository.save(user);
+
+        // Every hashing thread and queue slot held until the end of the test. The threads are taken
+        // first, so hashes left over from other tests can't finish and free a slot afterwards
+        int threads = Runtime.getRuntime().availableProcessors();
+        CountDownLatch started = new CountDownLatch(threads);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Boolean> blocker = () -> {
+            started.countDown();
+            try {
+                return release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        };
+        try {
+            for (int i = 0; i < threads; i++) {
+                passwordHashingExecutor.supply(blocker);
+            }
+            assertTrue(started.await(30, TimeUnit.SECONDS));
+            while (true) {
+                passwordHashingExecutor.supply(blocker);
+            }
+        } catch (RejectedExecutionException e) {
+            // Saturated
+        }
+
+        try {
+            RestAssured.given()
+                    .contentType(ContentType.JSON)
+                    .body("{\"email\": \"felipe@gmail.com\", \"password\": \"123456\"}")
+                    .when()
+                    .post("/login")
+                    .then()
+                    .statusCode(503)
+                    .header("Retry-After", equalTo("1"))
+                    .body("message", equalTo("Server busy, try again later"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void shouldAuthenticateUserWithSingleStatement() {
+
+        UserModel user = new UserModel(
+                1L,
+                "Felipe Enzo",
+                "felipe@gmail.com",
+                "17/08/2001"
+        );
+
+        user.setPassword(passwordEncoder.encode("123456"));
+        userRepository.save(user);
+
+        String requestBody =
+                "{\n" +
+                        "\t\"email\": \"felipe@gmail.com\",\n" +
+                        "\t\"password\": \"123456\"\n" +
+                        "}";
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body(requestBody)
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(200);
+
+        // Only the lookup by email; verification and token generation reuse the loaded user.
+        // The second statement stores the refresh token
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+
+        UserModel user = new UserModel(
+                1L,
+                "Felipe Enzo",
+                "felipe@gmail.com",
+                "17/08/2001"
+        );
+
+        user.setPassword(passwordEncoder.encode("123456"));
+        userRepository.save(user);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Only the first lookup of each key reaches the database, misses included
+        assertTrue(userRepository.findByEmail("felipe@gmail.com").isPresent());
+        assertTrue(userRepository.findByEmail("unknown@gmail.com").isEmpty());
+        assertTrue(userRepository.findByUuid(user.getUuid()).isPresent());
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals("Felipe Enzo", userRepository.findByEmail("felipe@gmail.com").orElseThrow().getName());
+        assertTrue(userRepository.findByEmail("unknown@gmail.com").isEmpty());
+        assertEquals("felipe@gmail.com", userRepository.findByUuid(user.getUuid()).orElseThrow().getEmail());
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+    }
+
+    @Test
+    void shouldEvictOnlyTheChangedUserFromCache() {
+        UserModel felipe = new UserModel(1L, "Felipe Enzo", "felipe@gmail.com", "17/08/2001");
+        felipe.setPassword(passwordEncoder.encode("123456"));
+        userRepository.save(felipe);
+
+        UserModel jose = new UserModel(2L, "Jose Alberto", "jose@gmail.com", "21/01/2000");
+        jose.setPassword(passwordEncoder.encode("123456"));
+        userRepository.save(jose);
+
+        Cache cache = entityManagerFactory.getCache();
+        cache.evictAll();
+        userRepository.findByUuid(felipe.getUuid()).orElseThrow();
+        userRepository.findByUuid(jose.getUuid()).orElseThrow();
+
+        userUpdateService.updateUser(new UserUpdateDto("Pedro Melo", "09/02/2002"), jose.getUuid(), null);
+        assertFalse(cache.contains(UserModel.class, jose.getId()));
+        assertTrue(cache.contains(UserModel.class, felipe.getId()));
+        assertEquals("Pedro Melo", userRepository.findByUuid(jose.getUuid()).orElseThrow().getName());
+
+        // Deleting also records a revocation, a native insert that mustn't clear the region either
+        userUpdateService.deleteUser(jose.getUuid());
+        assertFalse(cache.contains(UserModel.class, jose.getId()));
+        assertTrue(cache.contains(UserModel.class, felipe.getId()));
+        assertTrue(userRepository.findByUuid(jose.getUuid()).isEmpty());
+    }
+
+    @Test
+    void shouldReuseVerifiedTokensUntilTheyExpire() {
+
+        UserModel user = new UserModel(
+                1L,
+                "Felipe Enzo",
+                "felipe@gmail.com",
+                "17/08/2001"
+        );
+
+        user.setPassword(passwordEncoder.encode("123456"));
+        userRepository.save(user);
+
+        String jwt = RestAssured.given()
+                .contentType(ContentType.JSON)
+                .body("{\"email\": \"felipe@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(200)
+                .extract().path("jwt");
+
+        verifiedTokenCache.invalidateAll();
+        long hits = verifiedTokenCache.getHitCount();
+        long misses = verifiedTokenCache.getMissCount();
+
+        // Verified on the first request, taken from the cache on the second
+        for (int i = 0; i < 2; i++) {
+            RestAssured.given()
+                    .header("Authorization", "Bearer " + jwt)
+                    .when()
+                    .get("/user/" + user.getUuid())
+                    .then()
+                    .statusCode(200);
+        }
+
+        assertEquals(misses + 1, verifiedTokenCache.getMissCount());
+        assertEquals(hits + 1, verifiedTokenCache.getHitCount());
+        assertEquals(1, verifiedTokenCache.size());
+
+        // An entry past its token's expiration is a miss, and goes away
+        verifiedTokenCache.put("expired", new VerifiedToken(
+                user.getEmail(), user.getUuid(), null, 0, List.of(), System.currentTimeMillis() - 1));
+        long evictions = verifiedTokenCache.getEvictionCount();
+
+        assertNull(verifiedTokenCache.get("expired"));
+        assertEquals(evictions + 1, verifiedTokenCache.getEvictionCount());
+        assertEquals(1, verifiedTokenCache.size());
+    }
+
+    @Test
+    void shouldRehashOutdatedPasswordOnLogin() {
+
+        UserModel user = new UserModel(
+                1L,
+                "Felipe Enzo",
+                "felipe@gmail.com",
+                "17/08/2001"
+        );
+
+        // Hash stored before the encoder was configurable: no algorithm prefix and a weak strength
+        String outdatedHash = new BCryptPasswordEncoder(4).encode("123456");
+        user.setPassword(outdatedHash);
+        userRepository.save(user);
+
+        String requestBody =
+                "{\n" +
+                        "\t\"email\": \"felipe@gmail.com\",\n" +
+                        "\t\"password\": \"123456\"\n" +
+                        "}";
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body(requestBody)
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(200);
+
+        String storedHash = userRepository.findByEmail("felipe@gmail.com").get().getPassword();
+
+        assertNotEquals(outdatedHash, storedHash);
+        assertFalse(passwordEncoder.upgradeEncoding(storedHash));
+        assertTrue(passwordEncoder.matches("123456", storedHash));
+    }
+
+    @Test
+    void shouldRateLimitLoginAttemptsPerEmail() {
+        String requestBody = "{\"email\": \"jose@gmail.com\", \"password\": \"123456\"}";
+
+        for (int i = 0; i < 5; i++) {
+            RestAssured.given()
+                    .contentType(ContentType.JSON)
+                    .and()
+                    .body(requestBody)
+                    .when()
+                    .post("/login")
+                    .then()
+                    .statusCode(404);
+        }
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body(requestBody)
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(429)
+                .header("Retry-After", notNullValue())
+                .body("message", equalTo("Too many requests, try again later"));
+
+        // Other emails from the same address still get through
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body("{\"email\": \"maria@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(404);
+    }
+
+    @Test
+    void shouldRateLimitLoginAttemptsWithPaddedBodies() {
+        String padding = "x".repeat(8192);
+
+        // The email is still found behind padding, and counts against the same bucket
+        for (int i = 0; i < 5; i++) {
+            RestAssured.given()
+                    .contentType(ContentType.JSON)
+                    .body("{\"padding\": \"" + padding + "\", \"email\": \"jose@gmail.com\", \"password\": \"123456\"}")
+                    .when()
+                    .post("/login")
+                    .then()
+                    .statusCode(404);
+        }
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .body("{\"email\": \"jose@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(429);
+
+        // Too much padding to find the email: every such request shares one bucket
+        String farPadding = "x".repeat(32768);
+        for (int i = 0; i < 5; i++) {
+            RestAssured.given()
+                    .contentType(ContentType.JSON)
+                    .body("{\"padding\": \"" + farPadding + "\", \"email\": \"user" + i + "@gmail.com\", \"password\": \"123456\"}")
+                    .when()
+                    .post("/login")
+                    .then()
+                    .statusCode(404);
+        }
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .body("{\"padding\": \"" + farPadding + "\", \"email\": \"maria@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(429);
+    }
+
+    @Test
+    void shouldRateLimitLoginAttemptsWithRepeatedOrOversizedEmails() {
+
+        // The controller binds the last email; the changing first one doesn't buy a bucket of its own
+        for (int i = 0; i < 5; i++) {
+            RestAssured.given()
+                    .contentType(ContentType.JSON)
+                    .body("{\"email\": \"random" + i + "@gmail.com\", \"email\": \"jose@gmail.com\", \"password\": \"123456\"}")
+                    .when()
+                    .post("/login")
+                    .then()
+                    .statusCode(404);
+        }
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .body("{\"email\": \"random5@gmail.com\", \"email\": \"jose@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(429);
+
+        // No address is this long, so it shares the same bucket rather than keying one by its whole text
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .body("{\"email\": \"" + "x".repeat(8000) + "@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(429);
+    }
+
+    @Test
+    void shouldRotateRefreshTokensAndRevokeThemOnReuse() {
+        UserModel user = new UserModel(
+                1L,
+                "Felipe Enzo",
+                "felipe@gmail.com",
+                "17/08/2001"
+        );
+
+        user.setPassword(passwordEncoder.encode("123456"));
+        userRepository.save(user);
+
+        String refreshToken = RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body("{\"email\": \"felipe@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(200)
+                .body("refreshToken", notNullValue())
+                .extract().path("refreshToken");
+
+        Response refreshed = RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body("{\"refreshToken\": \"" + refreshToken + "\"}")
+                .when()
+                .post("/token/refresh")
+                .then()
+                .statusCode(200)
+                .body("uuid", equalTo(user.getUuid().toString()))
+                .extract().response();
+
+        String rotatedToken = refreshed.path("refreshToken");
+        assertNotEquals(refreshToken, rotatedToken);
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + refreshed.path("jwt"))
+                .when()
+                .get("/user/" + user.getUuid())
+                .then()
+                .statusCode(200);
+
+        // Exchanging a token twice revokes the ones rotated from it too
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body("{\"refreshToken\": \"" + refreshToken + "\"}")
+                .when()
+                .post("/token/refresh")
+                .then()
+                .statusCode(400)
+                .body("message", equalTo("Invalid token"));
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body("{\"refreshToken\": \"" + rotatedToken + "\"}")
+                .when()
+                .post("/token/refresh")
+                .then()
+                .statusCode(400)
+                .body("message", equalTo("Invalid token"));
+    }
+
+    @Test
+    void shouldRejectExpiredRefreshTokensWithoutRevokingTheirFamily() {
+        UserModel user = new UserModel(1L, "Felipe Enzo", "felipe@gmail.com", "17/08/2001");
+        user.setPassword(passwordEncoder.encode("123456"));
+        userRepository.save(user);
+
+        String refreshToken = RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body("{\"email\": \"felipe@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(200)
+                .extract().path("refreshToken");
+
+        jdbcTemplate.update("UPDATE refresh_tokens SET expires_at = now() - interval '1 minute'");
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body("{\"refreshToken\": \"" + refreshToken + "\"}")
+                .when()
+                .post("/token/refresh")
+                .then()
+                .statusCode(400)
+                .body("message", equalTo("Invalid token"));
+
+        // Never exchanged, so not a reuse: the token is kept until the expired ones are purged
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM refresh_tokens", Integer.class));
+    }
+
+    @Test
+    void shouldRejectTokensRevokedByLogoutAndPasswordChange() {
+        UserModel user = new UserModel(
+                1L,
+                "Felipe Enzo",
+                "felipe@gmail.com",
+                "17/08/2001"
+        );
+
+        user.setPassword(passwordEncoder.encode("123456"));
+        userRepository.save(user);
+
+        String loginBody = "{\"email\": \"felipe@gmail.com\", \"password\": \"123456\"}";
+
+        Response login = RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body(loginBody)
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(200)
+                .extract().response();
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + login.path("jwt"))
+                .contentType(ContentType.JSON)
+                .and()
+                .body("{\"refreshToken\": \"" + login.path("refreshToken") + "\"}")
+                .when()
+                .post("/logout")
+                .then()
+                .statusCode(204);
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + login.path("jwt"))
+                .when()
+                .get("/user/" + user.getUuid())
+                .then()
+                .statusCode(400)
+                .body("message", equalTo("Invalid token"));
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body("{\"refreshToken\": \"" + login.path("refreshToken") + "\"}")
                 .when()
-                .post("/register")
+                .post("/token/refresh")
                 .then()
-                .statusCode(400)
-                .body("message", equalTo("Error in Business Rules"));
-    }
+                .statusCode(400);
 
-    @Test
-    void shouldFailPostDuoToInvalidDataFormat() {
-        String requestBody =
-                "{\n" +
-                        "\t\"name\": \"\",\n" +
-                        "\t\"email\": \"junior@gmail.com\",\n" +
-                        "\t\"birthDate\": \"17/08/2001\",\n" +
-                        "\t\"password\": \"123456\"\n" +
-                        "}";
+        // A new password invalidates every token issued with the old one
+        String jwt = RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body(loginBody)
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(200)
+                .extract().path("jwt");
 
         RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
                 .contentType(ContentType.JSON)
                 .and()
-                .body(requestBody)
+                .body("{\"password\": \"654321\"}")
                 .when()
-                .post("/register")
+                .put("/password/" + user.getUuid())
+                .then()
+                .statusCode(200);
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .when()
+                .get("/user/" + user.getUuid())
                 .then()
                 .statusCode(400)
-                .body("message", equalTo("Invalid data format"));
+                .body("message", equalTo("Invalid token"));
     }
 
     @Test
-    void shouldFailedPostDueToEmailAlreadyExists() {
-
+    void shouldFailAuthenticationDueToInvalidDataFormat() {
         UserModel user = new UserModel(
                 1L,
-                "Junior Souza",
-                "junior@gmail.com",
+                "Felipe Enzo",
+                "felipe@gmail.com",
                 "17/08/2001"
         );
-        user.setPassword(passwordEncoder.encode("123456"));
 
+        user.setPassword(passwordEncoder.encode("123456"));
         userRepository.save(user);
 
         String requestBody =
                 "{\n" +
-                        "\t\"name\": \"Junior Fernandes\",\n" +
-                        "\t\"email\": \"junior@gmail.com\",\n" +
-                        "\t\"birthDate\": \"09/02/2002\",\n" +
-                        "\t\"password\": \"345868\"\n" +
+                        "\t\"email\": \"felipegmail.com\",\n" +
+                        "\t\"password\": \"123456\"\n" +
                         "}";
 
         RestAssured.given()
@@ -264,16 +1183,14 @@ public class UserRegisterServiceTest {
                 .and()
                 .body(requestBody)
                 .when()
-                .post("/register")
+                .post("/login")
                 .then()
-                .statusCode(409);
+                .statusCode(400)
+                .body("message", equalTo("Invalid data format"));
     }
 
-
-    // Post - login
     @Test
-    void shouldAuthenticateUser() {
-
+    void shouldFailAuthenticationDueToUserNotFound() {
         UserModel user = new UserModel(
                 1L,
                 "Felipe Enzo",
@@ -286,25 +1203,23 @@ public class UserRegisterServiceTest {
 
         String requestBody =
                 "{\n" +
-                        "\t\"email\": \"felipe@gmail.com\",\n" +
+                        "\t\"email\": \"jose@gmail.com\",\n" +
                         "\t\"password\": \"123456\"\n" +
                         "}";
 
-        String jwt = RestAssured.given()
+        RestAssured.given()
                 .contentType(ContentType.JSON)
                 .and()
                 .body(requestBody)
                 .when()
                 .post("/login")
                 .then()
-                .statusCode(200)
-                .extract().path("jwt");
-
-        System.out.println(jwt);
+                .statusCode(404)
+                .body("message", equalTo("User not found"));
     }
 
     @Test
-    void shouldFailAuthenticationDueToInvalidDataFormat() {
+    void shouldPublishStageLatenciesAndErrorsToPrometheus() {
         UserModel user = new UserModel(
                 1L,
                 "Felipe Enzo",
@@ -315,50 +1230,76 @@ public class UserRegisterServiceTest {
         user.setPassword(passwordEncoder.encode("123456"));
         userRepository.save(user);
 
-        String requestBody =
-                "{\n" +
-                        "\t\"email\": \"felipegmail.com\",\n" +
-                        "\t\"password\": \"123456\"\n" +
-                        "}";
+        String jwt = RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body("{\"email\": \"felipe@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(200)
+                .extract().path("jwt");
 
         RestAssured.given()
                 .contentType(ContentType.JSON)
                 .and()
-                .body(requestBody)
+                .body("{\"email\": \"jose@gmail.com\", \"password\": \"123456\"}")
                 .when()
                 .post("/login")
                 .then()
-                .statusCode(400)
-                .body("message", equalTo("Invalid data format"));
-    }
+                .statusCode(404);
 
-    @Test
-    void shouldFailAuthenticationDueToUserNotFound() {
-        UserModel user = new UserModel(
-                1L,
-                "Felipe Enzo",
-                "felipe@gmail.com",
-                "17/08/2001"
-        );
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .when()
+                .get("/user/" + user.getUuid())
+                .then()
+                .statusCode(200);
 
-        user.setPassword(passwordEncoder.encode("123456"));
-        userRepository.save(user);
+        // Not served on the public port
+        RestAssured.given()
+                .when()
+                .get("/actuator/prometheus")
+                .then()
+                .statusCode(404);
 
-        String requestBody =
-                "{\n" +
-                        "\t\"email\": \"jose@gmail.com\",\n" +
-                        "\t\"password\": \"123456\"\n" +
-                        "}";
+        RestAssured.given()
+                .baseUri("http://localhost:" + managementPort)
+                .when()
+                .get("/actuator/prometheus")
+                .then()
+                .statusCode(200)
+                .body(containsString("jwt_filter_latency_seconds_bucket{"))
+                .body(containsString("authentication_latency_seconds_bucket{"))
+                .body(containsString("outcome=\"UserNotFoundException\""))
+                .body(containsString("password_hashing_latency_seconds_bucket{"))
+                .body(containsString("spring_data_repository_invocations_seconds_bucket{"))
+                .body(containsString("hikaricp_connections_active{"))
+                .body(containsString("hikaricp_connections_idle{"))
+                .body(containsString("hikaricp_connections_pending{"))
+                .body(containsString("hikaricp_connections_acquire_seconds_bucket{"))
+                .body(containsString("cache_gets_total{"))
+                .body(containsString("cache=\"users\""))
+                .body(containsString("api_errors_total{application=\"pipocarosa\",exception=\"UserNotFoundException\",status=\"404\""));
+    }
+
+    @Test
+    void shouldAnswerExpectedErrorsFromTemplates() {
+        assertEquals(0, new UserNotFoundException().getStackTrace().length);
 
         RestAssured.given()
                 .contentType(ContentType.JSON)
                 .and()
-                .body(requestBody)
+                .body("{\"email\": \"nobody@gmail.com\", \"password\": \"123456\"}")
                 .when()
                 .post("/login")
                 .then()
                 .statusCode(404)
-                .body("message", equalTo("User not found"));
+                .contentType(ContentType.JSON)
+                .body("status", equalTo("NOT_FOUND"))
+                .body("timestamp", matchesPattern("\\d{2}-\\d{2}-\\d{4} \\d{2}:\\d{2}:\\d{2}"))
+                .body("message", equalTo("User not found"))
+                .body("path", equalTo("/login"));
     }
 
     // GetOne
@@ -412,7 +1353,9 @@ public class UserRegisterServiceTest {
                 .when()
                 .get(path)
                 .then()
-                .statusCode(200);
+                .statusCode(200)
+                .body("email", equalTo("felipe@gmail.com"))
+                .body("password", nullValue());
     }
 
     @Test
@@ -610,6 +1553,86 @@ public class UserRegisterServiceTest {
     }
 
 
+    @Test
+    void shouldGetAllUsersPageByPageAndAsStream() {
+        UserModel user1 = new UserModel(
+                1L,
+                "Felipe Enzo",
+                "felipe@gmail.com",
+                "17/08/2001"
+        );
+
+        UserModel user2 = new UserModel(
+                2L,
+                "Bruno Silva",
+                "bruno@gmail.com",
+                "17/08/2001"
+        );
+
+        UserModel user3 = new UserModel(
+                3L,
+                "Jose Alberto",
+                "jose@gmail.com",
+                "21/01/2000"
+        );
+
+        user1.setPassword(passwordEncoder.encode("123456"));
+        user1.setRole(Role.ADMIN);
+        user2.setPassword(passwordEncoder.encode("123456"));
+        user3.setPassword(passwordEncoder.encode("123456"));
+        userRepository.saveAll(List.of(user1, user2, user3));
+
+        String requestBody =
+                "{\n" +
+                        "\t\"email\": \"felipe@gmail.com\",\n" +
+                        "\t\"password\": \"123456\"\n" +
+                        "}";
+
+        String jwt = RestAssured.given()
+                .contentType(ContentType.JSON)
+                .and()
+                .body(requestBody)
+                .when()
+                .post("/login")
+                .then()
+                .extract().path("jwt");
+
+        // First page holds two users and points to the next one
+        String nextCursor = RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .when()
+                .get("/users?limit=2")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(2))
+                .extract().header("X-Next-Cursor");
+
+        assertNotNull(nextCursor);
+
+        // Last page has no cursor
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .when()
+                .get("/users?limit=2&after=" + nextCursor)
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(1))
+                .header("X-Next-Cursor", nullValue());
+
+        // Streaming mode writes one user per line
+        String body = RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .accept("application/x-ndjson")
+                .when()
+                .get("/users")
+                .then()
+                .statusCode(200)
+                .extract().asString();
+
+        assertEquals(3, body.lines().count());
+    }
+
+
     // Delete
     @Test
     void shouldDeleteUser() {
@@ -878,7 +1901,135 @@ public class UserRegisterServiceTest {
 
         // Validates if user's name and birthdate were updated
         assertEquals(userFound.getName(), "Pedro Melo");
-        assertEquals(userFound.getBirthDate(), "09/02/2002");
+        assertEquals(userFound.getBirthDate(), LocalDate.of(2002, 2, 9));
+    }
+
+    @Test
+    void shouldUpdateAndDeleteUsersWithSingleStatements() {
+        UserModel user = new UserModel(1L, "Jose Alberto", "jose@gmail.com", "21/01/2000");
+        user.setPassword(passwordEncoder.encode("123456"));
+        userRepository.save(user);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // No read before the write, the update's row count tells the user exists
+        userUpdateService.updateUser(new UserUpdateDto("Pedro Melo", "09/02/2002"), user.getUuid(), null);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1L, userRepository.findVersionByUuid(user.getUuid()).orElseThrow());
+
+        // Same values again: nothing is written and the version stays, the second statement reads it
+        statistics.clear();
+        userUpdateService.updateUser(new UserUpdateDto("Pedro Melo", "09/02/2002"), user.getUuid(), null);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(1L, userRepository.findVersionByUuid(user.getUuid()).orElseThrow());
+
+        // The second statement records the revocation of the user's tokens
+        statistics.clear();
+        userUpdateService.deleteUser(user.getUuid());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertFalse(userRepository.existsByEmail("jose@gmail.com"));
+
+        assertThrows(UserNotFoundException.class,
+                () -> userUpdateService.updateUser(new UserUpdateDto("Pedro Melo", "09/02/2002"), user.getUuid(), null));
+        assertThrows(UserNotFoundException.class, () -> userUpdateService.deleteUser(user.getUuid()));
+    }
+
+    @Test
+    void shouldAnswerConditionalRequestsWithTheUsersVersion() {
+        UserModel user = new UserModel(1L, "Jose Alberto", "jose@gmail.com", "21/01/2000");
+        user.setPassword(passwordEncoder.encode("123456"));
+        userRepository.save(user);
+
+        String jwt = RestAssured.given()
+                .contentType(ContentType.JSON)
+                .body("{\"email\": \"jose@gmail.com\", \"password\": \"123456\"}")
+                .when()
+                .post("/login")
+                .then()
+                .statusCode(200)
+                .extract().path("jwt");
+
+        String path = "/user/" + user.getUuid();
+
+        String eTag = RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .when()
+                .get(path)
+                .then()
+                .statusCode(200)
+                .header("ETag", equalTo("\"0\""))
+                .extract().header("ETag");
+
+        // Unchanged: no body, the version is all it takes
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .header("If-None-Match", eTag)
+                .when()
+                .get(path)
+                .then()
+                .statusCode(304)
+                .header("ETag", equalTo(eTag));
+
+        String requestBody = "{\"name\": \"Pedro Melo\", \"birthDate\": \"09/02/2002\"}";
+
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .header("Authorization", "Bearer " + jwt)
+                .header("If-Match", eTag)
+                .body(requestBody.replace("Pedro", "Joao"))
+                .when()
+                .put(path)
+                .then()
+                .statusCode(200)
+                .header("ETag", equalTo("\"1\""));
+
+        // A second writer still holding the old version doesn't overwrite the first one's change
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .header("Authorization", "Bearer " + jwt)
+                .header("If-Match", eTag)
+                .body(requestBody)
+                .when()
+                .put(path)
+                .then()
+                .statusCode(412);
+
+        assertEquals("Joao Melo", userRepository.findByUuid(user.getUuid()).get().getName());
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .header("If-None-Match", eTag)
+                .when()
+                .get(path)
+                .then()
+                .statusCode(200)
+                .header("ETag", equalTo("\"1\""))
+                .body("name", equalTo("Joao Melo"));
+
+        // Any of the listed tags may match, not just the first one
+        RestAssured.given()
+                .contentType(ContentType.JSON)
+                .header("Authorization", "Bearer " + jwt)
+                .header("If-Match", "W/\"1\", \"7\", \"1\"")
+                .body(requestBody)
+                .when()
+                .put(path)
+                .then()
+                .statusCode(200);
+
+        // A change this instance's cache didn't see, as made by another instance, is still no 304
+        assertNotNull(userRepository.findByUuid(user.getUuid()));
+        jdbcTemplate.update("UPDATE users SET version = version + 1 WHERE uuid = ?", user.getUuid());
+
+        RestAssured.given()
+                .header("Authorization", "Bearer " + jwt)
+                .header("If-None-Match", "\"2\"")
+                .when()
+                .get(path)
+                .then()
+                .statusCode(200)
+                .header("ETag", equalTo("\"3\""));
     }
 
     @Test